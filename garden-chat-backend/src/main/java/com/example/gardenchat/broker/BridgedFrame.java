@@ -0,0 +1,8 @@
+// src/main/java/com/example/gardenchat/broker/BridgedFrame.java
+package com.example.gardenchat.broker;
+
+// A broker MESSAGE as it crosses the bridge: already-serialized payload plus what the remote broker needs to route it.
+// userDestination is set only for messages to /user destinations with no session on the sending node.
+public record BridgedFrame(String originNode, String destination, String contentType, byte[] payload,
+                           String userDestination) {
+}
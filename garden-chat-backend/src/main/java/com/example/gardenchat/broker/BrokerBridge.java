@@ -0,0 +1,18 @@
+// src/main/java/com/example/gardenchat/broker/BrokerBridge.java
+package com.example.gardenchat.broker;
+
+import java.util.function.Consumer;
+
+// Carries broker frames between nodes that each run their own simple broker.
+// Implementations: InProcessBrokerBridge (same JVM, used by tests); a Redis/NATS backed one can be plugged in the same way.
+public interface BrokerBridge {
+
+    // Identifies this node so it can ignore its own frames
+    String nodeId();
+
+    // Sends a frame to every other node on the bridge
+    void publish(BridgedFrame frame);
+
+    // Registers the callback invoked for frames published by other nodes
+    void subscribe(Consumer<BridgedFrame> listener);
+}
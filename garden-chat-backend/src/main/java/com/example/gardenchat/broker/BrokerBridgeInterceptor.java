@@ -0,0 +1,108 @@
+// src/main/java/com/example/gardenchat/broker/BrokerBridgeInterceptor.java
+package com.example.gardenchat.broker;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+// Sits on the broker channel: copies locally produced broadcasts onto the bridge and
+// replays frames from other nodes into the local simple broker for its subscribers.
+// Messages to /user destinations whose user has no session on this node (direct messages, receipts) are sent by the
+// UserDestinationMessageHandler to USER_DESTINATION_BROADCAST, the way the relay's user destination broadcast works;
+// they cross the bridge and each other node resolves the user against its own sessions.
+public class BrokerBridgeInterceptor implements ChannelInterceptor {
+
+    // Outside the simple broker's prefixes, so no client can subscribe to other users' messages there
+    public static final String USER_DESTINATION_BROADCAST = "/bridge/unresolved-user-destination";
+
+    // Marks frames that arrived over the bridge so they aren't published again
+    static final String BRIDGED_HEADER = "gardenchatBridged";
+
+    private final BrokerBridge bridge;
+    private final List<String> prefixes;
+    private volatile MessageChannel brokerChannel;
+    private volatile MessageHandler userDestinationHandler;
+
+    public BrokerBridgeInterceptor(BrokerBridge bridge, List<String> prefixes) {
+        this.bridge = bridge;
+        this.prefixes = prefixes;
+    }
+
+    // Called once the broker channel exists; starts delivering remote frames into it, and unresolved user messages
+    // to the user destination handler
+    public synchronized void start(MessageChannel brokerChannel, UserDestinationMessageHandler userDestinationHandler) {
+        if (this.brokerChannel != null) {
+            return;
+        }
+        userDestinationHandler.setBroadcastDestination(USER_DESTINATION_BROADCAST);
+        this.userDestinationHandler = userDestinationHandler;
+        this.brokerChannel = brokerChannel;
+        bridge.subscribe(this::deliver);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() == SimpMessageType.MESSAGE
+                && accessor.getHeader(BRIDGED_HEADER) == null
+                && message.getPayload() instanceof byte[] payload) {
+            MimeType contentType = accessor.getContentType();
+            String type = contentType != null ? contentType.toString() : null;
+            if (USER_DESTINATION_BROADCAST.equals(accessor.getDestination())) {
+                String userDestination = accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+                if (userDestination != null) {
+                    bridge.publish(new BridgedFrame(bridge.nodeId(), accessor.getDestination(), type, payload,
+                            userDestination));
+                }
+            } else if (isBridged(accessor.getDestination())) {
+                bridge.publish(new BridgedFrame(bridge.nodeId(), accessor.getDestination(), type, payload, null));
+            }
+        }
+        return message;
+    }
+
+    private boolean isBridged(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deliver(BridgedFrame frame) {
+        if (brokerChannel == null || bridge.nodeId().equals(frame.originNode())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(frame.destination());
+        if (frame.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(frame.contentType()));
+        }
+        accessor.setHeader(BRIDGED_HEADER, frame.originNode());
+        if (frame.userDestination() != null) {
+            // Resolved against this node's sessions; the handler only copies native headers to the user's message,
+            // and treats a broadcast without a session id as its own
+            accessor.setSessionId(frame.originNode());
+            accessor.setNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, frame.userDestination());
+            if (frame.contentType() != null) {
+                accessor.setNativeHeader("content-type", frame.contentType());
+            }
+            userDestinationHandler.handleMessage(MessageBuilder.createMessage(frame.payload(), accessor.getMessageHeaders()));
+            return;
+        }
+        brokerChannel.send(MessageBuilder.createMessage(frame.payload(), accessor.getMessageHeaders()));
+    }
+}
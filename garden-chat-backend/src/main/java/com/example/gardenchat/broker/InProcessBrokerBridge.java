@@ -0,0 +1,51 @@
+// src/main/java/com/example/gardenchat/broker/InProcessBrokerBridge.java
+package com.example.gardenchat.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Bridge shared by every application context in the same JVM that uses the same cluster name.
+// Stand-in for a real transport so integration tests can run two nodes against each other.
+public class InProcessBrokerBridge implements BrokerBridge {
+
+    // Listeners per cluster name, shared across application contexts
+    private static final Map<String, List<Consumer<BridgedFrame>>> CLUSTERS = new ConcurrentHashMap<>();
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<BridgedFrame>> listeners;
+    private final List<Consumer<BridgedFrame>> ownListeners = new CopyOnWriteArrayList<>();
+
+    public InProcessBrokerBridge(String clusterName) {
+        this.listeners = CLUSTERS.computeIfAbsent(clusterName, name -> new CopyOnWriteArrayList<>());
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(BridgedFrame frame) {
+        for (Consumer<BridgedFrame> listener : listeners) {
+            if (!ownListeners.contains(listener)) {
+                listener.accept(frame);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BridgedFrame> listener) {
+        ownListeners.add(listener);
+        listeners.add(listener);
+    }
+
+    // Detaches this node, e.g. when its application context closes
+    public void close() {
+        listeners.removeAll(ownListeners);
+        ownListeners.clear();
+    }
+}
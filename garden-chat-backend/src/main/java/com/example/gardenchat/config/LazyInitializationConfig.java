@@ -0,0 +1,24 @@
+// src/main/java/com/example/gardenchat/config/LazyInitializationConfig.java
+package com.example.gardenchat.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+public class LazyInitializationConfig {
+
+    // With spring.main.lazy-initialization=true (prod profile) a bean is only created when something first needs it,
+    // so a bean with @Scheduled methods would not be scheduled until then: presence and typing ticks, unread counter
+    // flushes, directory refreshes, search snapshots and retention would wait for the first request. Those beans are
+    // still created at startup.
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeansStartEagerly() {
+        return (beanName, definition, beanType) -> !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                        AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+// src/main/java/com/example/gardenchat/config/MongoIndexConfig.java
+package com.example.gardenchat.config;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.MessageBucket;
+import com.example.gardenchat.model.UnreadCounter;
+import com.example.gardenchat.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ensures the indexes declared on @Document classes exist, retrying until every one has been built.
+// Unlike spring.data.mongodb.auto-index-creation this doesn't fail startup when MongoDB is unreachable; a unique
+// index that can't be built (e.g. existing duplicate usernames) is retried and logged until the data is fixed.
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    // Documents whose @Indexed / @CompoundIndex declarations should be applied
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Message.class, MessageBucket.class, UnreadCounter.class, User.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoConverter mongoConverter;
+
+    private final Set<Class<?>> indexed = ConcurrentHashMap.newKeySet(); // Documents whose indexes all exist
+
+    // First run at startup, on the maintenance scheduler so startup never waits on MongoDB server selection; later
+    // runs only retry the documents that failed, and do nothing once all of them succeeded
+    @Scheduled(fixedDelayString = "${chat.mongo.index-retry-ms:30000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    public void ensureIndexes() {
+        if (indexed.size() == INDEXED_DOCUMENTS.size()) {
+            return;
+        }
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoConverter.getMappingContext());
+        for (Class<?> type : INDEXED_DOCUMENTS) {
+            if (indexed.contains(type)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            try {
+                resolver.resolveIndexFor(type).forEach(indexOps::ensureIndex);
+                indexed.add(type);
+            } catch (DataAccessException e) {
+                log.warn("Could not ensure indexes for {}, retrying: {}", type.getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+}
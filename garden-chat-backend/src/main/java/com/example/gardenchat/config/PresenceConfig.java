@@ -0,0 +1,19 @@
+// src/main/java/com/example/gardenchat/config/PresenceConfig.java
+package com.example.gardenchat.config;
+
+import com.example.gardenchat.presence.InMemoryPresenceStore;
+import com.example.gardenchat.presence.PresenceStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PresenceConfig {
+
+    // Node-local presence; register another PresenceStore bean and set chat.presence.store to share it across nodes
+    @Bean
+    @ConditionalOnProperty(name = "chat.presence.store", havingValue = "in-memory", matchIfMissing = true)
+    public PresenceStore presenceStore() {
+        return new InMemoryPresenceStore();
+    }
+}
@@ -0,0 +1,33 @@
+// src/main/java/com/example/gardenchat/config/SchedulingConfig.java
+package com.example.gardenchat.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    // Runs jobs that block on MongoDB or the disk (flushes, refreshes, snapshots, archiving, startup loads), so they
+    // never hold up the heartbeat scheduler or borrow threads from the common ForkJoinPool. Select it on a scheduled
+    // method with @Scheduled(scheduler = MAINTENANCE_SCHEDULER); fixed-delay jobs never overlap themselves.
+    public static final String MAINTENANCE_SCHEDULER = "maintenanceScheduler";
+
+    @Value("${chat.maintenance.pool-size:2}")
+    private int poolSize;
+
+    @Bean(MAINTENANCE_SCHEDULER)
+    public ThreadPoolTaskScheduler maintenanceScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize); // Set with chat.maintenance.pool-size
+        scheduler.setThreadNamePrefix("Maintenance-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true); // Let an in-flight flush or snapshot finish
+        // ...but only briefly: a job stuck in MongoDB server selection would otherwise hold up a restart for its whole
+        // timeout. Unread counters and the search snapshot are written once more by their @PreDestroy methods, and
+        // daemon threads never keep the JVM alive after the context has closed.
+        scheduler.setAwaitTerminationSeconds(5);
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
@@ -3,43 +3,306 @@
 package com.example.gardenchat.config;
 
 // Import necessary Spring framework classes for WebSocket configuration
+import com.example.gardenchat.broker.BrokerBridge;
+import com.example.gardenchat.broker.BrokerBridgeInterceptor;
+import com.example.gardenchat.broker.InProcessBrokerBridge;
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.ratelimit.RateLimitErrorHandler;
+import com.example.gardenchat.ratelimit.RateLimitInterceptor;
+import com.example.gardenchat.ratelimit.RateLimiter;
+import com.example.gardenchat.service.SessionTokenService;
+import com.example.gardenchat.websocket.BroadcastTimingInterceptor;
+import com.example.gardenchat.websocket.CompressionUpgradeStrategy;
+import com.example.gardenchat.websocket.EphemeralFrameInterceptor;
+import com.example.gardenchat.websocket.PressureTrackingDecoratorFactory;
+import com.example.gardenchat.websocket.SessionPressureTracker;
+import com.example.gardenchat.websocket.StompAuthenticationInterceptor;
+import com.example.gardenchat.websocket.WireFormatNegotiator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
 
 // Marks this class as a configuration class
 @Configuration
 // Enables WebSocket message handling, backed by a message broker for routing messages
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    // simple: in-memory broker, single node (default)
+    // relay: external STOMP broker (RabbitMQ, ActiveMQ) shared by every node
+    // bridged: in-memory broker per node, with /topic broadcasts forwarded between nodes over a BrokerBridge
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${chat.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${chat.broker.bridge.prefixes:/topic}")
+    private List<String> bridgePrefixes; // Destinations forwarded to other nodes in bridged mode
+
+    @Value("${chat.outbound.ephemeral-prefixes:/topic/typing/}")
+    private List<String> ephemeralPrefixes; // Frames that may be dropped for clients that fall behind
+
+    // Executors for the client inbound channel (runs @MessageMapping handlers) and outbound channel (writes to sockets)
+    @Value("${chat.websocket.inbound.core-pool-size:16}")
+    private int inboundCorePoolSize;
+
+    @Value("${chat.websocket.inbound.max-pool-size:64}")
+    private int inboundMaxPoolSize;
+
+    @Value("${chat.websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${chat.websocket.inbound.virtual-threads:false}")
+    private boolean inboundVirtualThreads; // One virtual thread per inbound frame; needs JDK 21+
+
+    @Value("${chat.websocket.outbound.core-pool-size:16}")
+    private int outboundCorePoolSize;
+
+    @Value("${chat.websocket.outbound.max-pool-size:64}")
+    private int outboundMaxPoolSize;
+
+    @Value("${chat.websocket.outbound.queue-capacity:1000}")
+    private int outboundQueueCapacity;
+
+    @Value("${chat.websocket.preserve-order:true}")
+    private boolean preserveOrder; // Keep per-session frame order even though the pools are multi-threaded
+
+    @Value("${chat.websocket.heartbeat.pool-size:2}")
+    private int heartbeatPoolSize; // Also runs the @Scheduled presence and typing ticks
+
+    // Per-session transport limits so one slow consumer can't hold up a room's fan-out
+    @Value("${chat.websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${chat.websocket.send-buffer-size-limit:262144}")
+    private int sendBufferSizeLimit;
+
+    @Value("${chat.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${chat.websocket.permessage-deflate:true}")
+    private boolean permessageDeflate; // Accept compression when the client offers it; costs CPU per subscriber
+
+    @Autowired
+    private ObjectProvider<BrokerBridge> brokerBridge;
+
+    @Autowired
+    private SessionPressureTracker sessionPressureTracker;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private WireFormatNegotiator wireFormatNegotiator;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Value("${chat.rate-limit.stomp.prefixes:/app/chat/}")
+    private List<String> rateLimitedPrefixes; // SEND destinations subject to the session, user and group limits
+
+    // Lazy because the broker channel is itself built from this configurer
+    @Autowired
+    @Lazy
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    // Lazy for the same reason; tells senders about messages dropped by the group rate limit
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+
+    private BrokerBridgeInterceptor bridgeInterceptor;
+
+    // Channel pools created here rather than as beans, so Boot's default application executor is left alone
+    private final List<ThreadPoolTaskExecutor> channelExecutors = new CopyOnWriteArrayList<>();
+
     @Bean
     public ThreadPoolTaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(1); // Pool size can be increased if needed
+        scheduler.setPoolSize(heartbeatPoolSize); // Set with chat.websocket.heartbeat.pool-size
         scheduler.setThreadNamePrefix("WebSocketHeartBeat-");
         scheduler.initialize();
         return scheduler;
     }
 
+    // Same-JVM bridge for bridged mode; register another BrokerBridge bean and set chat.broker.bridge.type to replace it
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("'${chat.broker.mode:simple}' == 'bridged' and '${chat.broker.bridge.type:in-process}' == 'in-process'")
+    public InProcessBrokerBridge inProcessBrokerBridge(@Value("${chat.broker.bridge.cluster-name:garden-chat}") String clusterName) {
+        return new InProcessBrokerBridge(clusterName);
+    }
+
     // Configures the message broker that routes messages from one client to another
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue") // Enables a simple in-memory message broker with specified prefixes
-                .setHeartbeatValue(new long[]{10000, 10000}) // Configure heartbeats
-                .setTaskScheduler(taskScheduler()); // Use the defined TaskScheduler
+        if ("relay".equals(brokerMode)) {
+            config.enableStompBrokerRelay("/topic", "/queue") // Fan-out handled by the external broker, across all nodes
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setVirtualHost(relayVirtualHost.isEmpty() ? null : relayVirtualHost)
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination") // Resolve /user destinations on other nodes
+                    .setUserRegistryBroadcast("/topic/simp-user-registry")
+                    .setTaskScheduler(taskScheduler());
+        } else {
+            config.enableSimpleBroker("/topic", "/queue") // Enables a simple in-memory message broker with specified prefixes
+                    .setHeartbeatValue(new long[]{10000, 10000}) // Configure heartbeats
+                    .setTaskScheduler(taskScheduler()); // Use the defined TaskScheduler
+            if ("bridged".equals(brokerMode)) {
+                BrokerBridge bridge = brokerBridge.getIfAvailable();
+                if (bridge == null) {
+                    throw new IllegalStateException("chat.broker.mode=bridged requires a BrokerBridge bean");
+                }
+                bridgeInterceptor = new BrokerBridgeInterceptor(bridge, bridgePrefixes);
+                config.configureBrokerChannel().interceptors(bridgeInterceptor);
+            }
+        }
+        config.setPreservePublishOrder(preserveOrder); // Per-session order on the multi-threaded outbound channel
         config.setApplicationDestinationPrefixes("/app"); // Defines prefix for messages bound for methods annotated with @MessageMapping
-        System.out.println("WebSocket endpoint registered successfully!");
+        log.info("WebSocket message broker configured mode={}", brokerMode);
+    }
+
+    // Starts delivering frames from other nodes once the broker channel is ready, and makes user destinations with no
+    // session here (direct messages to users connected elsewhere) cross the bridge
+    @EventListener
+    public void startBridge(ContextRefreshedEvent event) {
+        if (bridgeInterceptor != null) {
+            bridgeInterceptor.start(brokerChannel, event.getApplicationContext().getBean(UserDestinationMessageHandler.class));
+        }
+    }
+
+    // CONNECT frames are authenticated first so the user limit and user destinations see the Principal; throttled
+    // frames are rejected next, before they are timed or reach a handler
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(inboundExecutor())
+                .interceptors(new StompAuthenticationInterceptor(sessionTokenService),
+                        new RateLimitInterceptor(rateLimiter, rateLimitedPrefixes, messagingTemplate),
+                        new BroadcastTimingInterceptor(chatMetrics, "/app/chat/"), wireFormatNegotiator.inbound());
+    }
+
+    // Sheds ephemeral frames for sessions whose outbound side is backed up, then re-encodes for CBOR sessions
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(channelExecutor("ws-outbound-", outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity))
+                .interceptors(new EphemeralFrameInterceptor(sessionPressureTracker, ephemeralPrefixes), wireFormatNegotiator.outbound());
+    }
+
+    // Adds CBOR for inbound frames sent with content-type application/cbor; the JSON defaults stay registered
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(wireFormatNegotiator.messageConverter());
+        return true;
+    }
+
+    // Limits per-session buffering and lets the pressure tracker observe how long socket writes take
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(new PressureTrackingDecoratorFactory(sessionPressureTracker))
+                .addDecoratorFactory(wireFormatNegotiator.sessionTracker());
+    }
+
+    // Virtual threads suit handlers that block on MongoDB; falls back to the pool on older JDKs
+    private TaskExecutor inboundExecutor() {
+        if (inboundVirtualThreads) {
+            if (Runtime.version().feature() >= 21) {
+                return new VirtualThreadTaskExecutor("ws-inbound-vt-");
+            }
+            log.warn("chat.websocket.inbound.virtual-threads requires JDK 21+, running on {}; using a thread pool",
+                    Runtime.version());
+        }
+        return channelExecutor("ws-inbound-", inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+    }
+
+    // Bounded pool; when it is saturated the submitting thread runs the task, which pushes back on the producer
+    private ThreadPoolTaskExecutor channelExecutor(String prefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(prefix);
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        channelExecutors.add(executor);
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdownChannelExecutors() {
+        channelExecutors.forEach(ThreadPoolTaskExecutor::shutdown);
     }
 
     // Registers a WebSocket endpoint that clients will use to connect to the WebSocket server
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.setPreserveReceiveOrder(preserveOrder); // Per-session order on the multi-threaded inbound channel
+        registry.setErrorHandler(new RateLimitErrorHandler()); // 429 ERROR frames with retry-after for throttled sends
         registry.addEndpoint("/ws") // Define WebSocket endpoint at /ws path
                 .setAllowedOrigins("http://localhost:3000") // Allow connections only from this origin (frontend URL)
+                .setHandshakeHandler(new DefaultHandshakeHandler( // chat.websocket.permessage-deflate
+                        new CompressionUpgradeStrategy(new StandardWebSocketUpgradeStrategy(), permessageDeflate)))
                 .withSockJS(); // Enable SockJS fallback options for clients not supporting WebSocket
     }
 }
@@ -1,8 +1,30 @@
 package com.example.gardenchat.controller;
 
+import com.example.gardenchat.metrics.ChatMetrics; // Import the chat meters
 import com.example.gardenchat.model.Message; // Import the Message entity/model
+import com.example.gardenchat.model.MessagePage;
+import com.example.gardenchat.presence.TypingIndicatorService; // Import the typing-indicator debouncer
+import com.example.gardenchat.presence.UsernamePayload;
 import com.example.gardenchat.repository.MessageRepository; // Import the MessageRepository for data access
+import com.example.gardenchat.search.MessageSearchService; // Import the full-text message search
+import com.example.gardenchat.service.DirectMessageService; // Import the direct message push and unread counts
+import com.example.gardenchat.service.GroupSequencer; // Import the per-group sequence allocator
+import com.example.gardenchat.service.MessageExportService; // Import the streaming history export
+import com.example.gardenchat.service.MessageHistoryService; // Import the paginated history queries
+import com.example.gardenchat.service.MessagePersistenceService; // Import the write-behind persistence stage
+import com.example.gardenchat.service.RecentMessageCache; // Import the per-group recent message cache
+import com.example.gardenchat.service.SessionTokenService; // Import the login token verification
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -10,38 +32,164 @@ import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
 
 // Annotates this class as a Spring Controller to handle HTTP requests and WebSocket messages
 @Controller
 @RequestMapping("/api/messages") // Base path for REST API endpoints in this controller
 public class ChatController {
 
+    private static final Logger log = LoggerFactory.getLogger(ChatController.class);
+
     // Injects the MessageRepository for database operations related to Message entities
     @Autowired
     private MessageRepository messageRepository;
 
+    // Write-behind queue so broadcasts don't wait on a MongoDB round trip
+    @Autowired
+    private MessagePersistenceService messagePersistenceService;
+
+    // Keyset-paginated history reads
+    @Autowired
+    private MessageHistoryService messageHistoryService;
+
+    // Streams whole-room exports without materializing them in memory
+    @Autowired
+    private MessageExportService messageExportService;
+
+    // Recent messages per group, filled as messages are broadcast
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    // Debounces typing notifications into one frame per group per tick
+    @Autowired
+    private TypingIndicatorService typingIndicatorService;
+
+    // Numbers each group's broadcasts so reconnecting clients can ask for just what they missed
+    @Autowired
+    private GroupSequencer groupSequencer;
+
+    // Indexes broadcasts for full-text search
+    @Autowired
+    private MessageSearchService messageSearchService;
+
+    @Autowired
+    private DirectMessageService directMessageService;
+
+    // Verifies the login token that names the sender of REST sends
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
 
-    // Thread-safe Set to track online users
-    private final Set<String> onlineUsers = ConcurrentHashMap.newKeySet();
+    // Fraction of broadcasts logged at INFO; every broadcast is logged when DEBUG is enabled
+    @Value("${chat.logging.broadcast-sample-rate:0.01}")
+    private double broadcastLogSampleRate;
 
-    // Handles GET requests for retrieving messages for a specific user
+    // Handles GET requests for retrieving a page of messages for a specific user, newest first
     @GetMapping("/{username}")
-    public ResponseEntity<List<Message>> getMessages(@PathVariable String username) {
-        // Retrieves a list of messages by username (assuming 'receiver' refers to the user receiving messages)
-        List<Message> messages = messageRepository.findByReceiver(username);
-        // Returns the list of messages as an HTTP 200 OK response with the list as JSON
-        return ResponseEntity.ok(messages);
+    public ResponseEntity<?> getMessages(@PathVariable String username,
+                                         @RequestParam(required = false) String before,
+                                         @RequestParam(required = false) Integer limit) {
+        try {
+            // Retrieves messages by username (assuming 'receiver' refers to the user receiving messages)
+            MessagePage page = messageHistoryService.receiverPage(username, before, limit);
+            // Returns the page as an HTTP 200 OK response; pass nextCursor back as "before" for older messages
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Handles GET requests for searching room messages: ranked by relevance, optionally within one group and
+    // [from, to); pass nextCursor back as "after" for the next page
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMessages(@RequestParam String q,
+                                            @RequestParam(required = false) String group,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                            @RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(messageSearchService.search(q, group, from, to, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Handles GET requests for retrieving a page of messages posted to a group, newest first
+    @GetMapping("/group/{group}")
+    public ResponseEntity<?> getGroupMessages(@PathVariable String group,
+                                              @RequestParam(required = false) String before,
+                                              @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(messageHistoryService.groupPage(group, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Handles GET requests for the messages of a group after the last sequence a client saw, oldest first;
+    // pass nextCursor back as the sequence while it is non-null to page through a long gap
+    @GetMapping("/group/{group}/since/{sequence}")
+    public ResponseEntity<?> getGroupMessagesSince(@PathVariable String group,
+                                                   @PathVariable long sequence,
+                                                   @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(messageHistoryService.groupSince(group, sequence, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Streams a group's history as newline-delimited JSON, oldest first, optionally gzip-compressed
+    @GetMapping("/group/{group}/export")
+    public void exportGroupMessages(@PathVariable String group,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                    @RequestParam(defaultValue = "false") boolean gzip,
+                                    HttpServletResponse response) throws IOException {
+        String filename = group + (gzip ? ".ndjson.gz" : ".ndjson");
+        response.setContentType(gzip ? "application/gzip" : "application/x-ndjson");
+        // The group name comes from the path: quoted, escaped and RFC 5987-encoded rather than pasted into the header
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build().toString());
+        // Written synchronously to the servlet stream so long exports aren't cut off by the async request timeout
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+            messageExportService.exportGroup(group, from, to, gzipOut);
+            gzipOut.finish();
+        } else {
+            messageExportService.exportGroup(group, from, to, out);
+        }
+        out.flush();
     }
 
-    // Handles POST requests to send a new message
+    // Handles POST requests to send a new message; the sender is the user the login token was issued to, never the body
     @PostMapping
-    public ResponseEntity<Message> sendMessage(@RequestBody Message message) {
+    public ResponseEntity<Message> sendMessage(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                               @RequestBody Message message) {
+        String sender = sessionTokenService.verifyBearer(authorization);
+        if (sender == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build(); // Missing, expired or forged token
+        }
+        message.setSender(sender);
         message.setTimestamp(LocalDateTime.now()); // Sets the timestamp to the current time
         Message savedMessage = messageRepository.save(message); // Saves the message to the database
+        if (savedMessage.getReceiver() != null) {
+            directMessageService.deliver(savedMessage); // Pushed to the receiver instead of waiting for a poll
+        }
         // Returns the saved message as an HTTP 200 OK response with the message data in JSON
         return ResponseEntity.ok(savedMessage);
     }
@@ -49,18 +197,34 @@ public class ChatController {
     @MessageMapping("/chat/{group}")
     @SendTo("/topic/messages/{group}")
     public Message broadcastMessage(@DestinationVariable String group, Message message) {
-        message.setTimestamp(LocalDateTime.now());
+        message.setTimestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS)); // MongoDB stores millisecond precision
         message.setGroup(group);
-        messageRepository.save(message);
-        System.out.println("Broadcasting message to group: " + group + " Message: " + message);
+        message.setId(new ObjectId().toHexString()); // Assign the id up front so subscribers see the persisted id
+        message.setSequence(groupSequencer.next(group)); // Lets clients detect and replay gaps after a reconnect
+        recentMessageCache.add(message); // Cached before it is queued so joins never miss an unflushed message
+        messagePersistenceService.enqueue(message); // Persisted asynchronously in batches
+        messageSearchService.index(message); // Searchable right away
+        if (message.getSender() != null) {
+            typingIndicatorService.clear(group, message.getSender()); // The sender has stopped typing
+        }
+        chatMetrics.messageBroadcast(group);
+        if (log.isDebugEnabled()) {
+            log.debug("broadcast group={} id={} sender={} length={}", group, message.getId(), message.getSender(),
+                    message.getContent() == null ? 0 : message.getContent().length());
+        } else if (log.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < broadcastLogSampleRate) {
+            log.info("broadcast (sampled) group={} id={} sender={}", group, message.getId(), message.getSender());
+        }
         return message;
     }
 
+    // Typing notifications are debounced: they refresh the user's indicator and TypingIndicatorService
+    // broadcasts who started or stopped typing, at most one frame per group per tick, on /topic/typing/{group}
     @MessageMapping("/typing/{group}")
-    @SendTo("/topic/typing/{group}")
-    public String handleTypingNotification(@DestinationVariable String group, String typingUser) {
-        System.out.println("Typing notification for group: " + group + " User: " + typingUser);
-        return typingUser;
+    public void handleTypingNotification(@DestinationVariable String group, String typingUser) {
+        String username = UsernamePayload.parse(objectMapper, typingUser);
+        if (username != null) {
+            typingIndicatorService.record(group, username);
+        }
     }
 
         // WebSocket: Handle typing notifications
@@ -71,21 +235,4 @@ public class ChatController {
            System.out.println("Typing notification received from: " + typingUser);
             return typingUser; // Broadcasts the username of the user typing
         }*/
-
-        // WebSocket: Add user to online list and broadcast updated list
-        @MessageMapping("/online")
-        @SendTo("/topic/onlineUsers")
-        public Set<String> handleUserPresence(String username) {
-            System.out.println("User online: " + username);
-            onlineUsers.add(username);
-            return onlineUsers; // Broadcast updated list of online users
-        }
-        // WebSocket: Remove user from online list and broadcast updated list
-        @MessageMapping("/offline")
-        @SendTo("/topic/online-users")
-        public Set<String> handleUserOffline(String username) {
-            onlineUsers.remove(username);
-            return onlineUsers; // Broadcast updated list of online users
-        }
     }
-
@@ -0,0 +1,34 @@
+// src/main/java/com/example/gardenchat/controller/DirectMessageController.java
+package com.example.gardenchat.controller;
+
+import com.example.gardenchat.model.DeliveryReceipt;
+import com.example.gardenchat.service.DirectMessageService; // Import the direct message delivery and unread counts
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.Map;
+
+// WebSocket endpoints for direct messages; both act for the user the connection authenticated as on CONNECT
+@Controller
+public class DirectMessageController {
+
+    @Autowired
+    private DirectMessageService directMessageService;
+
+    // Subscribing to /app/dm/unread returns the unread count per sender once; new messages follow on /user/queue/messages
+    @SubscribeMapping("/dm/unread")
+    public Map<String, Long> unreadCounts(Principal principal) {
+        return principal == null ? Map.of() : directMessageService.unread(principal.getName());
+    }
+
+    // WebSocket: The reader has seen the sender's messages up to messageId; the sender gets a read receipt
+    @MessageMapping("/dm/read")
+    public void markRead(Principal principal, DeliveryReceipt receipt) {
+        if (principal != null && receipt.getSender() != null) {
+            directMessageService.markRead(principal.getName(), receipt.getSender(), receipt.getMessageId());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+// src/main/java/com/example/gardenchat/controller/PresenceController.java
+package com.example.gardenchat.controller;
+
+import com.example.gardenchat.presence.PresenceService; // Import the session-driven presence tracking
+import com.example.gardenchat.presence.UsernamePayload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.Set;
+
+// WebSocket endpoints for presence; the state itself lives in PresenceService and follows session lifecycle events
+@Controller
+public class PresenceController {
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Subscribing to /app/presence returns the current online users once; deltas follow on /topic/presence
+    @SubscribeMapping("/presence")
+    public Set<String> onlineUsers() {
+        return presenceService.snapshot();
+    }
+
+    // WebSocket: Bind this session to a user for clients that don't send a login header on CONNECT
+    @MessageMapping("/online")
+    public void handleUserPresence(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId, String body) {
+        String username = UsernamePayload.parse(objectMapper, body);
+        if (username != null) {
+            presenceService.online(sessionId, username);
+        }
+    }
+
+    // WebSocket: Explicit sign-out; closing the socket has the same effect
+    @MessageMapping("/offline")
+    public void handleUserOffline(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        presenceService.offline(sessionId);
+    }
+}
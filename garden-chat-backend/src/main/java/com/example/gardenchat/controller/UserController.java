@@ -1,13 +1,19 @@
 package com.example.gardenchat.controller;
 
 import com.example.gardenchat.model.User; // Import the User model
+import com.example.gardenchat.model.UserPage;
 import com.example.gardenchat.repository.UserRepository; // Import UserRepository for database access
+import com.example.gardenchat.service.CredentialService;
+import com.example.gardenchat.service.SessionTokenService;
+import com.example.gardenchat.service.UserDirectoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -21,16 +27,29 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    // Hashes passwords on registration and verifies logins through a bounded cache
+    @Autowired
+    private CredentialService credentialService;
+
+    // Serves the paged user directory from an in-memory username index
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    // Issues the signed token that identifies the user on API requests and the STOMP CONNECT
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
     // Endpoint for user registration
     @PostMapping("/register")
     public ResponseEntity<String> registerUser(@RequestBody User user) {
-        // Check if username already exists in the database
-        if (userRepository.findByUsername(user.getUsername()) != null) {
+        if (user.getUsername() == null || user.getUsername().isBlank() || user.getPassword() == null) {
+            return ResponseEntity.badRequest().body("Username and password are required");
+        }
+        // Save the new user with a hashed password; the unique username index rejects taken names
+        if (!credentialService.register(user.getUsername(), user.getPassword())) {
             // If username is taken, return a 400 Bad Request response with a message
             return ResponseEntity.badRequest().body("Username already taken");
         }
-        // Save the new user to the database
-        userRepository.save(user);
         // Return a success message with HTTP 200 OK status
         return ResponseEntity.ok("User registered successfully");
     }
@@ -38,12 +57,10 @@ public class UserController {
     // Endpoint for user login, returns a token if login is successful
     @PostMapping("/login")
     public ResponseEntity<?> loginUser(@RequestBody User loginRequest) {
-        // Find the user in the database by username
-        Optional<User> user = Optional.ofNullable(userRepository.findByUsername(loginRequest.getUsername()));
-        // Check if user exists and password matches
-        if (user.isPresent() && user.get().getPassword().equals(loginRequest.getPassword())) {
-            // Generate a token (here, a dummy token is used for demonstration)
-            String token = "dummy-jwt-token"; // Replace with actual token generation logic
+        // Check if user exists and password matches the stored hash
+        if (credentialService.verify(loginRequest.getUsername(), loginRequest.getPassword())) {
+            // Signed and time-limited; presented on the STOMP CONNECT so direct messages can be routed to this user
+            String token = sessionTokenService.issue(loginRequest.getUsername());
             Map<String, String> response = new HashMap<>();
             response.put("token", token);
             response.put("message", "Login Successful");
@@ -55,13 +72,20 @@ public class UserController {
         }
     }
 
-    // Endpoint to retrieve all registered users
+    // Endpoint to browse the user directory a page at a time, optionally narrowed to usernames starting with prefix.
+    // Unchanged pages answer If-None-Match with 304 Not Modified.
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        // Retrieve all users from the database
-        List<User> users = userRepository.findAll();
-        // Return the list of users as JSON with HTTP 200 OK status
-        return ResponseEntity.ok(users);
+    public ResponseEntity<UserPage> getUsers(@RequestParam(required = false) String prefix,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(required = false) Integer limit,
+                                             WebRequest request) {
+        UserPage page = userDirectoryService.page(prefix, after, limit);
+        String etag = UserDirectoryService.etag(page);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        // Return the page as JSON with HTTP 200 OK status; clients revalidate rather than reuse it blindly
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(page);
     }
 
     // Endpoint to update a user's profile icon
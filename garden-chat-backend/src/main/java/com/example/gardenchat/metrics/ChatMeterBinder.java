@@ -0,0 +1,121 @@
+// src/main/java/com/example/gardenchat/metrics/ChatMeterBinder.java
+package com.example.gardenchat.metrics;
+
+import com.example.gardenchat.presence.PresenceService;
+import com.example.gardenchat.search.MessageSearchService;
+import com.example.gardenchat.service.CredentialService;
+import com.example.gardenchat.service.DirectMessageService;
+import com.example.gardenchat.service.MessagePersistenceService;
+import com.example.gardenchat.service.RecentMessageCache;
+import com.example.gardenchat.service.UserDirectoryService;
+import com.example.gardenchat.websocket.SessionPressureTracker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+
+// Gauges over state the chat components already keep; bound once by Spring Boot's MeterRegistry setup
+@Component
+public class ChatMeterBinder implements MeterBinder {
+
+    @Autowired
+    private MessagePersistenceService messagePersistenceService;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private CredentialService credentialService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private MessageSearchService messageSearchService;
+
+    @Autowired
+    private DirectMessageService directMessageService;
+
+    @Autowired
+    private SessionPressureTracker sessionPressureTracker;
+
+    @Autowired
+    private StompSessionStats stompSessionStats;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.stomp.sessions", stompSessionStats, StompSessionStats::sessions)
+                .description("Connected STOMP sessions on this node")
+                .register(registry);
+        Gauge.builder("chat.stomp.subscriptions", stompSessionStats, StompSessionStats::subscriptions)
+                .description("Active subscriptions across this node's sessions")
+                .register(registry);
+        Gauge.builder("chat.presence.online", presenceService, p -> p.snapshot().size())
+                .description("Users with at least one live session")
+                .register(registry);
+        Gauge.builder("chat.persistence.queue.pending", messagePersistenceService, MessagePersistenceService::pending)
+                .description("Messages accepted but not yet written to MongoDB")
+                .register(registry);
+        Gauge.builder("chat.cache.messages", recentMessageCache, RecentMessageCache::size)
+                .description("Messages held by the recent message cache")
+                .register(registry);
+        Gauge.builder("chat.cache.groups", recentMessageCache, RecentMessageCache::groups)
+                .register(registry);
+        FunctionCounter.builder("chat.cache.requests", recentMessageCache, RecentMessageCache::hits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("chat.cache.requests", recentMessageCache, RecentMessageCache::misses)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("chat.cache.evictions", recentMessageCache, RecentMessageCache::evictions)
+                .register(registry);
+        Gauge.builder("chat.auth.cache.users", credentialService, CredentialService::cachedUsers)
+                .description("Users with a cached verified credential")
+                .register(registry);
+        Gauge.builder("chat.directory.users", userDirectoryService, UserDirectoryService::size)
+                .description("Usernames in the in-memory directory index")
+                .register(registry);
+        Gauge.builder("chat.search.documents", messageSearchService, MessageSearchService::size)
+                .description("Messages in the full-text search index")
+                .register(registry);
+        Gauge.builder("chat.dm.inboxes", directMessageService, DirectMessageService::inboxes)
+                .description("Users whose direct message unread counts are held in memory")
+                .register(registry);
+        FunctionCounter.builder("chat.outbound.dropped", sessionPressureTracker, SessionPressureTracker::droppedFrames)
+                .description("Ephemeral frames dropped for sessions under back-pressure")
+                .register(registry);
+        bindChannelQueue(registry, "clientInboundChannel", "inbound");
+        bindChannelQueue(registry, "clientOutboundChannel", "outbound");
+        bindChannelQueue(registry, "brokerChannel", "broker");
+    }
+
+    // Depth of the executor queue behind a STOMP channel, when the channel runs on a thread pool
+    private void bindChannelQueue(MeterRegistry registry, String beanName, String channel) {
+        if (!applicationContext.containsBean(beanName)) {
+            return;
+        }
+        Executor executor = applicationContext.getBean(beanName, ExecutorSubscribableChannel.class).getExecutor();
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            Gauge.builder("chat.stomp.channel.queue", pool, p -> p.getThreadPoolExecutor().getQueue().size())
+                    .description("Messages waiting for a thread on a STOMP channel")
+                    .tag("channel", channel)
+                    .register(registry);
+            Gauge.builder("chat.stomp.channel.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                    .tag("channel", channel)
+                    .register(registry);
+        }
+    }
+}
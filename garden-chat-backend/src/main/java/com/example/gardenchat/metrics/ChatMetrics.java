@@ -0,0 +1,129 @@
+// src/main/java/com/example/gardenchat/metrics/ChatMetrics.java
+package com.example.gardenchat.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Meters recorded on the chat hot path. Latencies publish percentile histograms so p50/p99 can be computed in Prometheus.
+@Component
+public class ChatMetrics {
+
+    // Tag used for groups beyond the per-group tag budget
+    static final String OTHER_GROUP = "other";
+
+    private final MeterRegistry registry;
+    private final int maxGroupTags;
+    private final Set<String> taggedGroups = ConcurrentHashMap.newKeySet();
+    private final Map<String, Timer> historyTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> loginCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> throttledCounters = new ConcurrentHashMap<>();
+    private final Timer broadcastLatency;
+    private final Timer persistenceBatch;
+    private final Timer persistenceInline;
+    private final DistributionSummary persistenceBatchSize;
+    private final Counter persistenceFailures;
+    private final Counter archivedBuckets;
+
+    public ChatMetrics(MeterRegistry registry, @Value("${chat.metrics.max-group-tags:100}") int maxGroupTags) {
+        this.registry = registry;
+        this.maxGroupTags = maxGroupTags;
+        this.broadcastLatency = Timer.builder("chat.broadcast.latency")
+                .description("Receipt of a /app/chat frame until its fan-out has been handed to the broker")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1).dividedBy(10))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+        this.persistenceBatch = Timer.builder("chat.persistence.write")
+                .description("MongoDB insert of one write-behind batch")
+                .tag("mode", "batch")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.persistenceInline = Timer.builder("chat.persistence.write")
+                .description("MongoDB save done by the caller because the write-behind queue was full")
+                .tag("mode", "inline")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.persistenceBatchSize = DistributionSummary.builder("chat.persistence.batch.size")
+                .description("Messages per write-behind batch")
+                .register(registry);
+        this.persistenceFailures = Counter.builder("chat.persistence.failures")
+                .description("Messages in batches that failed to persist")
+                .register(registry);
+        this.archivedBuckets = Counter.builder("chat.storage.archived.buckets")
+                .description("Message buckets moved to the archive collection")
+                .register(registry);
+    }
+
+    // Per-group message rate; the group tag is capped so a flood of rooms can't explode cardinality
+    public void messageBroadcast(String group) {
+        registry.counter("chat.messages", "group", groupTag(group)).increment();
+    }
+
+    public void broadcastLatency(long nanos) {
+        broadcastLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void persistedBatch(int size, long nanos) {
+        persistenceBatch.record(nanos, TimeUnit.NANOSECONDS);
+        persistenceBatchSize.record(size);
+    }
+
+    public void persistedInline(long nanos) {
+        persistenceInline.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void persistenceFailed(int messages) {
+        persistenceFailures.increment(messages);
+    }
+
+    public void archived(int buckets) {
+        archivedBuckets.increment(buckets);
+    }
+
+    // REST history reads, split by what was queried and whether the cache answered
+    public void historyQuery(String kind, String source, long nanos) {
+        historyTimers.computeIfAbsent(kind + ':' + source, key -> Timer.builder("chat.history.query")
+                        .description("History page lookup")
+                        .tag("kind", kind)
+                        .tag("source", source)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Login outcomes: cached (no lookup or hashing), verified (full check) or rejected
+    public void loginAttempt(String outcome) {
+        loginCounters.computeIfAbsent(outcome, key -> Counter.builder("chat.auth.logins")
+                        .tag("outcome", outcome)
+                        .register(registry))
+                .increment();
+    }
+
+    // Requests rejected by a rate limit, by the scope that rejected them: session, user, group or http
+    public void throttled(String scope) {
+        throttledCounters.computeIfAbsent(scope, key -> Counter.builder("chat.ratelimit.throttled")
+                        .tag("scope", scope)
+                        .register(registry))
+                .increment();
+    }
+
+    String groupTag(String group) {
+        if (group == null) {
+            return OTHER_GROUP;
+        }
+        if (taggedGroups.contains(group) || (taggedGroups.size() < maxGroupTags && taggedGroups.add(group))) {
+            return group;
+        }
+        return OTHER_GROUP;
+    }
+}
@@ -0,0 +1,64 @@
+// src/main/java/com/example/gardenchat/metrics/StompSessionStats.java
+package com.example.gardenchat.metrics;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Live STOMP sessions on this node and their subscription counts, kept from session lifecycle events
+@Component
+public class StompSessionStats {
+
+    private final Map<String, AtomicInteger> subscriptionsBySession = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            subscriptionsBySession.putIfAbsent(sessionId, new AtomicInteger());
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            subscriptionsBySession.computeIfAbsent(sessionId, id -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        AtomicInteger subscriptions = sessionId == null ? null : subscriptionsBySession.get(sessionId);
+        if (subscriptions != null) {
+            subscriptions.updateAndGet(n -> Math.max(0, n - 1));
+        }
+    }
+
+    // May fire more than once per session; removing by id keeps the counts right
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        subscriptionsBySession.remove(event.getSessionId());
+    }
+
+    public int sessions() {
+        return subscriptionsBySession.size();
+    }
+
+    public int subscriptions() {
+        int total = 0;
+        for (AtomicInteger subscriptions : subscriptionsBySession.values()) {
+            total += subscriptions.get();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,22 @@
+// src/main/java/com/example/gardenchat/model/DeliveryReceipt.java
+package com.example.gardenchat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Tells a direct message's sender how far the receiver got: "delivered" when it was pushed to a connected session,
+// "read" when the receiver has read up to messageId. Receivers send the read form to /app/dm/read.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryReceipt {
+
+    public static final String DELIVERED = "delivered";
+    public static final String READ = "read";
+
+    private String sender;    // Who sent the messages
+    private String receiver;  // Who received them
+    private String messageId; // Newest message covered by this receipt
+    private String status;    // delivered or read
+}
@@ -2,6 +2,8 @@ package com.example.gardenchat.model;
 
 import lombok.Data; // Lombok annotation to generate boilerplate code like getters and setters
 import org.springframework.data.annotation.Id; // Annotation to mark the primary key field
+import org.springframework.data.mongodb.core.index.CompoundIndex; // Annotation to declare multi-field indexes
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document; // Annotation to map this class to a MongoDB collection
 import java.time.LocalDateTime;
 
@@ -9,6 +11,12 @@ import java.time.LocalDateTime;
 @Data
 // Maps this class to a MongoDB collection named "messages"
 @Document(collection = "messages")
+// History pages are keyset scans on (timestamp, _id) within a receiver or a group
+@CompoundIndexes({
+        @CompoundIndex(name = "receiver_timestamp_id", def = "{'receiver': 1, 'timestamp': -1, '_id': -1}"),
+        @CompoundIndex(name = "group_timestamp_id", def = "{'group': 1, 'timestamp': -1, '_id': -1}"),
+        @CompoundIndex(name = "group_sequence", def = "{'group': 1, 'sequence': 1}") // Replays after a reconnect
+})
 public class Message {
 
     // Marks this field as the primary key in the MongoDB collection
@@ -26,4 +34,7 @@ public class Message {
     private LocalDateTime timestamp; // Date and time when the message was sent
 
     private String group;
+
+    // Position of the message within its group, assigned when it is broadcast; null for direct messages
+    private Long sequence;
 }
@@ -0,0 +1,37 @@
+package com.example.gardenchat.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// The messages of one group within one time window, stored as a single document (chat.storage.mode=bucketed).
+// A window that outgrows the per-bucket cap continues in another bucket with the same start.
+@Data
+@Document(collection = "message_buckets")
+@CompoundIndexes({
+        @CompoundIndex(name = "group_start", def = "{'group': 1, 'start': -1}"), // History pages and export
+        @CompoundIndex(name = "group_last_sequence", def = "{'group': 1, 'lastSequence': 1}") // Replays after a reconnect
+})
+public class MessageBucket {
+
+    @Id
+    private String id;
+
+    private String group;
+
+    private LocalDateTime start; // First instant of the window
+    private LocalDateTime end;   // First instant after the window; retention is measured from here
+
+    private int count; // Number of messages in this bucket
+
+    // Range of group sequences held, for replays; null while the bucket only holds unsequenced messages
+    private Long firstSequence;
+    private Long lastSequence;
+
+    private List<Message> messages; // In arrival order
+}
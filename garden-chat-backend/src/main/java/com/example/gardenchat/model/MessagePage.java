@@ -0,0 +1,17 @@
+// src/main/java/com/example/gardenchat/model/MessagePage.java
+package com.example.gardenchat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// One page of message history, newest first, with the cursor to pass as "before" for the next (older) page
+@Data
+@AllArgsConstructor
+public class MessagePage {
+
+    private List<Message> messages; // Messages on this page, ordered by timestamp then id, descending
+
+    private String nextCursor; // Opaque cursor for the next page, or null when history is exhausted
+}
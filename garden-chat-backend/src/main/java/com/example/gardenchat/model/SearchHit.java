@@ -0,0 +1,15 @@
+// src/main/java/com/example/gardenchat/model/SearchHit.java
+package com.example.gardenchat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// One search result: the matching message and its relevance (BM25; only comparable within one query)
+@Data
+@AllArgsConstructor
+public class SearchHit {
+
+    private Message message;
+
+    private double score;
+}
@@ -0,0 +1,19 @@
+// src/main/java/com/example/gardenchat/model/SearchPage.java
+package com.example.gardenchat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// One page of search results, best match first, with the cursor to pass as "after" for the next page
+@Data
+@AllArgsConstructor
+public class SearchPage {
+
+    private List<SearchHit> hits; // Hits on this page, by descending score, newer first on ties
+
+    private long total; // Messages matching the query and filters
+
+    private String nextCursor; // Opaque cursor for the next page, or null when there are no more results
+}
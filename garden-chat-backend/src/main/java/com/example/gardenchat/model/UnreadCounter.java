@@ -0,0 +1,24 @@
+package com.example.gardenchat.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Persisted state of one direct-message conversation from the receiver's side, written lazily from memory
+@Data
+@Document(collection = "unread_counters")
+@CompoundIndex(name = "receiver_sender", def = "{'receiver': 1, 'sender': 1}", unique = true)
+public class UnreadCounter {
+
+    @Id
+    private String id;
+
+    private String receiver;
+
+    private String sender;
+
+    private long unread; // Messages from sender the receiver hasn't read yet
+
+    private String lastRead; // Id of the newest message the receiver has read
+}
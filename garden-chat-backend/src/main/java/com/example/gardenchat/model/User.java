@@ -1,8 +1,10 @@
 // src/main/java/com/example/gardenchat/model/User.java
 package com.example.gardenchat.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data; // Lombok annotation to generate boilerplate code like getters, setters, and more
 import org.springframework.data.annotation.Id; // Annotation to mark the primary key field
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document; // Annotation to map this class to a MongoDB collection
 
 // Lombok's @Data generates getters, setters, toString, equals, and hashCode methods automatically
@@ -15,10 +17,12 @@ public class User {
     @Id
     private String id; // Unique identifier for each user (auto-generated by MongoDB)
 
-    // Field for the username of the user
+    // Field for the username of the user; the unique index makes registration race-free and login a point lookup
+    @Indexed(unique = true)
     private String username; // Unique username for the user
 
-    // Field for the user's password
+    // Field for the user's password; stored as an encoded hash and never serialized back to clients
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password; // Password for the user's account
 
     // Field for the profile icon URL or path
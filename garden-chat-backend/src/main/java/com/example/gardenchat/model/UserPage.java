@@ -0,0 +1,17 @@
+// src/main/java/com/example/gardenchat/model/UserPage.java
+package com.example.gardenchat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// One page of the user directory in username order, with the cursor to pass as "after" for the next page
+@Data
+@AllArgsConstructor
+public class UserPage {
+
+    private List<UserSummary> users; // Users on this page, ordered by username
+
+    private String nextCursor; // Last username on this page, or null when the directory is exhausted
+}
@@ -0,0 +1,15 @@
+// src/main/java/com/example/gardenchat/model/UserSummary.java
+package com.example.gardenchat.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Projection of a User for directory listings: only what the sidebar shows, never the credential
+@Data
+@AllArgsConstructor
+public class UserSummary {
+
+    private String id; // Same id as the User document
+
+    private String username; // Unique username
+}
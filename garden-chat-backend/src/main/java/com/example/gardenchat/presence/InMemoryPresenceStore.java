@@ -0,0 +1,42 @@
+// src/main/java/com/example/gardenchat/presence/InMemoryPresenceStore.java
+package com.example.gardenchat.presence;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Default PresenceStore: session ids per username in a concurrent map
+public class InMemoryPresenceStore implements PresenceStore {
+
+    private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public void addSession(String username, String sessionId) {
+        // compute rather than computeIfAbsent so a concurrent removal can't drop the set we add to
+        sessionsByUser.compute(username, (u, sessions) -> {
+            Set<String> result = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            result.add(sessionId);
+            return result;
+        });
+    }
+
+    @Override
+    public void removeSession(String username, String sessionId) {
+        // compute keeps the removal and the empty-set cleanup atomic per user
+        sessionsByUser.computeIfPresent(username, (u, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    @Override
+    public boolean isOnline(String username) {
+        return sessionsByUser.containsKey(username);
+    }
+
+    @Override
+    public Set<String> onlineUsers() {
+        return Collections.unmodifiableSet(sessionsByUser.keySet());
+    }
+}
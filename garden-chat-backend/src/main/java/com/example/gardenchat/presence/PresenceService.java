@@ -0,0 +1,123 @@
+// src/main/java/com/example/gardenchat/presence/PresenceService.java
+package com.example.gardenchat.presence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tracks online users from STOMP session lifecycle events and broadcasts coalesced joined/left deltas
+@Service
+public class PresenceService {
+
+    // Destination for presence deltas
+    public static final String PRESENCE_TOPIC = "/topic/presence";
+
+    @Autowired
+    private PresenceStore presenceStore;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    // Sessions on this node and the user each belongs to, so disconnects can be attributed
+    private final Map<String, String> usernameBySession = new ConcurrentHashMap<>();
+
+    // Users whose presence changed since the last tick, with their online state before the first change
+    private final Map<String, Boolean> changedSinceTick = new ConcurrentHashMap<>();
+
+    private final Object sendLock = new Object();
+
+    // Binds the session to its user when CONNECT carries a principal or a login header
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String username = event.getUser() != null ? event.getUser().getName() : accessor.getLogin();
+        if (accessor.getSessionId() != null && username != null && !username.isBlank()) {
+            online(accessor.getSessionId(), username);
+        }
+    }
+
+    // Fires for clean disconnects and for sockets closed by heartbeat timeouts, so no ghost users remain
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        offline(event.getSessionId());
+    }
+
+    // Marks the session's user online; also used by clients that announce themselves after connecting
+    public synchronized void online(String sessionId, String username) {
+        String previous = usernameBySession.put(sessionId, username);
+        if (username.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            recordChange(previous);
+            presenceStore.removeSession(previous, sessionId);
+        }
+        recordChange(username);
+        presenceStore.addSession(username, sessionId);
+    }
+
+    // Marks the session gone; its user goes offline once no other session remains
+    public synchronized void offline(String sessionId) {
+        String username = usernameBySession.remove(sessionId);
+        if (username != null) {
+            recordChange(username);
+            presenceStore.removeSession(username, sessionId);
+        }
+    }
+
+    // Everyone currently online, sent once to a subscriber before deltas take over
+    public Set<String> snapshot() {
+        return presenceStore.onlineUsers();
+    }
+
+    private void recordChange(String username) {
+        changedSinceTick.computeIfAbsent(username, presenceStore::isOnline);
+    }
+
+    // One update per tick; a user who joined and left within the tick produces nothing.
+    // The delta is taken under the same monitor as online/offline, so a change can't slip between recording and
+    // evaluation, but sent after releasing it so connects and disconnects never wait on outbound fan-out.
+    // sendLock keeps the sends in tick order should two flushes ever overlap.
+    @Scheduled(fixedDelayString = "${chat.presence.tick-ms:500}")
+    public void flush() {
+        synchronized (sendLock) {
+            PresenceUpdate update = takeDelta();
+            if (update != null) {
+                messagingTemplate.convertAndSend(PRESENCE_TOPIC, update);
+            }
+        }
+    }
+
+    // Net changes since the last tick, or null when nobody's presence changed
+    private synchronized PresenceUpdate takeDelta() {
+        if (changedSinceTick.isEmpty()) {
+            return null;
+        }
+        List<String> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        Iterator<Map.Entry<String, Boolean>> it = changedSinceTick.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Boolean> entry = it.next();
+            it.remove();
+            boolean now = presenceStore.isOnline(entry.getKey());
+            if (now && !entry.getValue()) {
+                joined.add(entry.getKey());
+            } else if (!now && entry.getValue()) {
+                left.add(entry.getKey());
+            }
+        }
+        return joined.isEmpty() && left.isEmpty() ? null : new PresenceUpdate(joined, left);
+    }
+}
@@ -0,0 +1,20 @@
+// src/main/java/com/example/gardenchat/presence/PresenceStore.java
+package com.example.gardenchat.presence;
+
+import java.util.Set;
+
+// Backend holding which users have at least one live STOMP session.
+// InMemoryPresenceStore covers a single node (or several contexts in one JVM); a shared store such as Redis
+// implements the same contract so every node sees the same presence.
+public interface PresenceStore {
+
+    // Records a live session for the user
+    void addSession(String username, String sessionId);
+
+    // Forgets a session; the user stays online while other sessions remain
+    void removeSession(String username, String sessionId);
+
+    boolean isOnline(String username);
+
+    Set<String> onlineUsers();
+}
@@ -0,0 +1,8 @@
+// src/main/java/com/example/gardenchat/presence/PresenceUpdate.java
+package com.example.gardenchat.presence;
+
+import java.util.List;
+
+// Net presence changes during one tick, broadcast on /topic/presence
+public record PresenceUpdate(List<String> joined, List<String> left) {
+}
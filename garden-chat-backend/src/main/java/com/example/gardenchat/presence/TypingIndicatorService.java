@@ -0,0 +1,94 @@
+// src/main/java/com/example/gardenchat/presence/TypingIndicatorService.java
+package com.example.gardenchat.presence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Debounces typing notifications: keystrokes only refresh a per-(group, user) timestamp, and each tick sends at
+// most one frame per group with the users who started or stopped typing. Updates are deltas of this node's own
+// clients, so in relay and bridged mode the frames of different nodes add up instead of overwriting each other.
+// Typists are announced again every half window while they keep typing; clients expire anyone not renewed, which
+// also clears the typists of a node that went away or a stop frame dropped for a slow client.
+@Service
+public class TypingIndicatorService {
+
+    // Prefix of the per-group typing destinations
+    public static final String TYPING_TOPIC_PREFIX = "/topic/typing/";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.typing.window-ms:3000}")
+    private long windowMillis; // A user counts as typing for this long after their last keystroke
+
+    // group -> (user -> typist)
+    private final Map<String, Map<String, Typist>> typingByGroup = new ConcurrentHashMap<>();
+
+    // Records a keystroke; a new typist is announced on the next tick
+    public void record(String group, String username) {
+        long now = System.currentTimeMillis();
+        // compute so the tick can't drop the group's map between lookup and insert
+        typingByGroup.compute(group, (g, typists) -> {
+            Map<String, Typist> result = typists != null ? typists : new ConcurrentHashMap<>();
+            result.computeIfAbsent(username, u -> new Typist()).lastKeystroke = now;
+            return result;
+        });
+    }
+
+    // Clears a user's indicator on the next tick, e.g. when their message is sent
+    public void clear(String group, String username) {
+        Map<String, Typist> typists = typingByGroup.get(group);
+        Typist typist = typists == null ? null : typists.get(username);
+        if (typist != null) {
+            typist.lastKeystroke = 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.typing.tick-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        long expiredBefore = now - windowMillis;
+        long renewBefore = now - windowMillis / 2;
+        typingByGroup.forEach((group, typists) -> {
+            List<String> started = new ArrayList<>();
+            List<String> stopped = new ArrayList<>();
+            typists.entrySet().removeIf(entry -> {
+                Typist typist = entry.getValue();
+                if (typist.lastKeystroke < expiredBefore) {
+                    if (typist.announced != 0) {
+                        stopped.add(entry.getKey());
+                    }
+                    return true;
+                }
+                if (typist.announced < renewBefore) {
+                    typist.announced = now;
+                    started.add(entry.getKey());
+                }
+                return false;
+            });
+            if (!started.isEmpty() || !stopped.isEmpty()) {
+                Collections.sort(started);
+                Collections.sort(stopped);
+                messagingTemplate.convertAndSend(TYPING_TOPIC_PREFIX + group,
+                        new TypingUpdate(group, started, stopped, windowMillis));
+            }
+            if (typists.isEmpty()) {
+                typingByGroup.computeIfPresent(group, (g, t) -> t.isEmpty() ? null : t);
+            }
+        });
+    }
+
+    private static final class Typist {
+        volatile long lastKeystroke; // 0 once cleared
+        volatile long announced;     // When last sent in started; 0 until then
+    }
+}
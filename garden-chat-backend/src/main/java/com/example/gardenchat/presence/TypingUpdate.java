@@ -0,0 +1,10 @@
+// src/main/java/com/example/gardenchat/presence/TypingUpdate.java
+package com.example.gardenchat.presence;
+
+import java.util.List;
+
+// Changes to who is typing in a group, broadcast on /topic/typing/{group}. Each node only reports its own clients'
+// typists, so clients merge the updates of every node: a user in started counts as typing for expiresInMillis
+// (renewed while they keep typing), a user in stopped is removed right away.
+public record TypingUpdate(String group, List<String> started, List<String> stopped, long expiresInMillis) {
+}
@@ -0,0 +1,29 @@
+// src/main/java/com/example/gardenchat/presence/UsernamePayload.java
+package com.example.gardenchat.presence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Reads the username out of presence/typing frames, which the frontend sends as {"username": "..."}
+public final class UsernamePayload {
+
+    private UsernamePayload() {
+    }
+
+    // Accepts either a bare (optionally quoted) username or a JSON object with a username field; null if absent
+    public static String parse(ObjectMapper objectMapper, String body) {
+        String value = body == null ? "" : body.trim();
+        if (value.startsWith("{")) {
+            try {
+                JsonNode node = objectMapper.readTree(value).get("username");
+                value = node == null ? "" : node.asText().trim();
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        } else if (value.startsWith("\"")) {
+            value = value.replace("\"", "").trim();
+        }
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,50 @@
+// src/main/java/com/example/gardenchat/ratelimit/RateLimit.java
+package com.example.gardenchat.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// One limit (refill rate and burst size) applied independently to every key of a scope, e.g. every session
+final class RateLimit {
+
+    private final String scope;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    RateLimit(String scope, double permitsPerSecond, int burst) {
+        this.scope = scope;
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+    }
+
+    String scope() {
+        return scope;
+    }
+
+    // 0 when the key may proceed, otherwise the nanoseconds until it may try again; a zero rate means unlimited
+    long tryAcquire(String key, long now) {
+        if (intervalNanos == 0 || key == null) {
+            return 0;
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(intervalNanos, burstNanos, now)).tryAcquire(now);
+    }
+
+    // Returns a token acquired for the key; a no-op when its bucket has already been swept
+    void refund(String key) {
+        TokenBucket bucket = key == null ? null : buckets.get(key);
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    // Drops buckets that have refilled completely; keeps the maps proportional to recently active keys
+    void sweep(long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
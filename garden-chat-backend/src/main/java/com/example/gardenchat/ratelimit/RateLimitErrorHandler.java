@@ -0,0 +1,41 @@
+// src/main/java/com/example/gardenchat/ratelimit/RateLimitErrorHandler.java
+package com.example.gardenchat.ratelimit;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.StompSubProtocolErrorHandler;
+
+import java.nio.charset.StandardCharsets;
+
+// ERROR frames for sends over a session or user limit: "429 Too Many Requests" with a retry-after header (milliseconds) and the scope
+// that was exceeded. As for any STOMP ERROR the server closes the connection; the client reconnects after the
+// delay and resumes its groups from their last sequence, so nothing delivered to others is lost.
+public class RateLimitErrorHandler extends StompSubProtocolErrorHandler {
+
+    public static final String RETRY_AFTER_HEADER = "retry-after";
+    public static final String SCOPE_HEADER = "x-garden-rate-limit";
+
+    @Override
+    protected Message<byte[]> handleInternal(StompHeaderAccessor errorHeaderAccessor, byte[] errorPayload,
+                                             Throwable cause, StompHeaderAccessor clientHeaderAccessor) {
+        RateLimitExceededException limit = rateLimitCause(cause);
+        if (limit != null) {
+            errorHeaderAccessor.setMessage("429 Too Many Requests");
+            errorHeaderAccessor.setNativeHeader(RETRY_AFTER_HEADER, String.valueOf(limit.getRetryAfterMillis()));
+            errorHeaderAccessor.setNativeHeader(SCOPE_HEADER, limit.getScope());
+            errorHeaderAccessor.setContentType(MimeTypeUtils.TEXT_PLAIN);
+            errorPayload = limit.getMessage().getBytes(StandardCharsets.UTF_8);
+        }
+        return super.handleInternal(errorHeaderAccessor, errorPayload, cause, clientHeaderAccessor);
+    }
+
+    private static RateLimitExceededException rateLimitCause(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof RateLimitExceededException limit) {
+                return limit;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+// src/main/java/com/example/gardenchat/ratelimit/RateLimitExceededException.java
+package com.example.gardenchat.ratelimit;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+
+// Thrown from the inbound channel for a STOMP frame over its session or user limit; RateLimitErrorHandler turns it into an ERROR frame
+public class RateLimitExceededException extends MessageDeliveryException {
+
+    private final String scope;
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(Message<?> message, String scope, long retryAfterMillis) {
+        super(message, "Too many messages (" + scope + " limit), retry after " + retryAfterMillis + " ms");
+        this.scope = scope;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
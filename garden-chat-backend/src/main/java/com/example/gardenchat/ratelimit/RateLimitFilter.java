@@ -0,0 +1,67 @@
+// src/main/java/com/example/gardenchat/ratelimit/RateLimitFilter.java
+package com.example.gardenchat.ratelimit;
+
+import com.example.gardenchat.service.SessionTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Throttles REST writes (POST /api/messages and the like) per client with the http bucket; reads stay unlimited.
+// Rejected requests get 429 with a Retry-After header in whole seconds.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Value("${chat.rate-limit.http.paths:/api/messages}")
+    private List<String> paths; // Path prefixes whose POST requests are rate-limited
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return paths.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimiter.Rejection rejection = rateLimiter.checkHttp(clientKey(request));
+        if (rejection != null) {
+            long seconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(rejection.retryAfterMillis() + 999));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many requests, retry after " + seconds + " s");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    // The user of a valid login token when there is one, otherwise the client address. Security doesn't authenticate
+    // requests, so the token is verified here; a forged or expired one counts against the address. The address is the
+    // proxy's unless server.forward-headers-strategy trusts its X-Forwarded-For (see application.properties).
+    String clientKey(HttpServletRequest request) {
+        String user = sessionTokenService.verifyBearer(request.getHeader(HttpHeaders.AUTHORIZATION));
+        return user != null ? "user:" + user : "addr:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,76 @@
+// src/main/java/com/example/gardenchat/ratelimit/RateLimitInterceptor.java
+package com.example.gardenchat.ratelimit;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.security.Principal;
+import java.util.List;
+
+// Client inbound channel interceptor: throttles SEND frames to rate-limited destinations before any handler runs,
+// so a flooding client costs neither a Mongo write nor a room fan-out. Over its session or user limit the sender
+// gets an ERROR frame. Over the group limit the frame is only dropped and the sender told on /user/queue/rate-limit:
+// a busy room is not the sender's fault, and closing connections there would let a few flooders disconnect everyone.
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    public static final String NOTICE_QUEUE = "/queue/rate-limit";
+
+    private final RateLimiter rateLimiter;
+    private final List<String> destinationPrefixes;
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, List<String> destinationPrefixes,
+                                SimpMessageSendingOperations messagingTemplate) {
+        this.rateLimiter = rateLimiter;
+        this.destinationPrefixes = destinationPrefixes;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String prefix = matchingPrefix(destination);
+        if (prefix == null) {
+            return message;
+        }
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String group = destination.substring(prefix.length());
+        RateLimiter.Rejection rejection = rateLimiter.checkChat(sessionId, user == null ? null : user.getName(),
+                group.isEmpty() ? null : group);
+        if (rejection == null) {
+            return message;
+        }
+        if (RateLimiter.GROUP_SCOPE.equals(rejection.scope()) && sessionId != null) {
+            notify(sessionId, rejection);
+            return null; // Dropped; the connection stays open
+        }
+        throw new RateLimitExceededException(message, rejection.scope(), rejection.retryAfterMillis());
+    }
+
+    // Addressed by session id, so anonymous connections get it too
+    private void notify(String sessionId, RateLimiter.Rejection rejection) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, NOTICE_QUEUE, rejection, headers.getMessageHeaders());
+    }
+
+    private String matchingPrefix(String destination) {
+        if (destination != null) {
+            for (String prefix : destinationPrefixes) {
+                if (destination.startsWith(prefix)) {
+                    return prefix;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+// src/main/java/com/example/gardenchat/ratelimit/RateLimiter.java
+package com.example.gardenchat.ratelimit;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Token buckets for chat traffic, keyed by session, user and group for STOMP sends and by client for REST posts.
+// A request must get a token from every bucket that applies to it, and is charged nothing when any of them refuses;
+// a rate of 0 turns that scope off.
+@Component
+public class RateLimiter {
+
+    public static final String GROUP_SCOPE = "group";
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${chat.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.rate-limit.session.per-second:5}")
+    private double sessionRate; // Messages per second one connection may sustain
+
+    @Value("${chat.rate-limit.session.burst:20}")
+    private int sessionBurst; // Messages one connection may send back to back
+
+    @Value("${chat.rate-limit.user.per-second:5}")
+    private double userRate; // Per user across all of their connections
+
+    @Value("${chat.rate-limit.user.burst:20}")
+    private int userBurst;
+
+    @Value("${chat.rate-limit.group.per-second:50}")
+    private double groupRate; // Per room, bounding the fan-out work one room can cause
+
+    @Value("${chat.rate-limit.group.burst:200}")
+    private int groupBurst;
+
+    @Value("${chat.rate-limit.http.per-second:5}")
+    private double httpRate; // Per client address (or authenticated user) on rate-limited REST endpoints
+
+    @Value("${chat.rate-limit.http.burst:20}")
+    private int httpBurst;
+
+    private RateLimit session;
+    private RateLimit user;
+    private RateLimit group;
+    private RateLimit http;
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    @PostConstruct
+    void init() {
+        session = new RateLimit("session", sessionRate, sessionBurst);
+        user = new RateLimit("user", userRate, userBurst);
+        group = new RateLimit(GROUP_SCOPE, groupRate, groupBurst);
+        http = new RateLimit("http", httpRate, httpBurst);
+    }
+
+    // A chat frame from a session (and user, when known) to a group; null when it may proceed
+    public Rejection checkChat(String sessionId, String username, String groupName) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Rejection rejection = acquire(session, sessionId, now);
+        if (rejection == null) {
+            rejection = acquire(user, username, now);
+            if (rejection != null) {
+                session.refund(sessionId);
+            }
+        }
+        if (rejection == null) {
+            rejection = acquire(group, groupName, now);
+            if (rejection != null) { // A busy room must not use up the sender's own allowance
+                session.refund(sessionId);
+                user.refund(username);
+            }
+        }
+        maybeSweep(now);
+        return rejection;
+    }
+
+    // A REST request from a client; null when it may proceed
+    public Rejection checkHttp(String client) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Rejection rejection = acquire(http, client, now);
+        maybeSweep(now);
+        return rejection;
+    }
+
+    private Rejection acquire(RateLimit limit, String key, long now) {
+        long wait = limit.tryAcquire(key, now);
+        if (wait == 0) {
+            return null;
+        }
+        chatMetrics.throttled(limit.scope());
+        return new Rejection(limit.scope(), Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+    }
+
+    private void maybeSweep(long now) {
+        if (now - lastSweepNanos > SWEEP_INTERVAL_NANOS) {
+            lastSweepNanos = now;
+            for (RateLimit limit : List.of(session, user, group, http)) {
+                limit.sweep(now);
+            }
+        }
+    }
+
+    // Which limit was hit and when the caller may try again
+    public record Rejection(String scope, long retryAfterMillis) {
+    }
+}
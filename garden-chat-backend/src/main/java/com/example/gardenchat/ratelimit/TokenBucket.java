@@ -0,0 +1,45 @@
+// src/main/java/com/example/gardenchat/ratelimit/TokenBucket.java
+package com.example.gardenchat.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time", updated with a CAS.
+// A request is allowed while that time stays within burst intervals of now; each allowed request pushes it one
+// interval further, and it drains back to now at the refill rate.
+final class TokenBucket {
+
+    private final long intervalNanos; // Time to refill one token
+    private final long burstNanos;    // Time to refill a full bucket
+    private final AtomicLong arrival;
+
+    TokenBucket(long intervalNanos, long burstNanos, long now) {
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = burstNanos;
+        this.arrival = new AtomicLong(now);
+    }
+
+    // Takes a token; returns 0 when allowed, otherwise the nanoseconds until a token will be available
+    long tryAcquire(long now) {
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Gives back a token taken by tryAcquire for a request that another limit then rejected
+    void refund() {
+        arrival.addAndGet(-intervalNanos);
+    }
+
+    // A full bucket behaves exactly like a new one, so it can be dropped
+    boolean isFull(long now) {
+        return arrival.get() <= now;
+    }
+}
@@ -2,12 +2,21 @@
 package com.example.gardenchat.repository;
 
 import com.example.gardenchat.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
-public interface MessageRepository extends MongoRepository<Message, String> {
+// save, insert(Iterable) and the group queries are implemented by MessageStorage, which follows chat.storage.mode
+public interface MessageRepository extends MongoRepository<Message, String>, MessageStorage<Message> {
     List<Message> findByReceiver(String receiver);
-}
-
 
+    // Keyset pagination: newest page first, then everything strictly older than (timestamp, id)
+    List<Message> findByReceiver(String receiver, Pageable pageable);
 
+    @Query("{ 'receiver': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Message> findByReceiverBefore(String receiver, LocalDateTime timestamp, ObjectId id, Pageable pageable);
+}
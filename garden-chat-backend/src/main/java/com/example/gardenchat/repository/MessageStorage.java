@@ -0,0 +1,36 @@
+// src/main/java/com/example/gardenchat/repository/MessageStorage.java
+package com.example.gardenchat.repository;
+
+import com.example.gardenchat.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Repository fragment for the operations whose storage depends on chat.storage.mode: writes and group reads go to
+// the flat messages collection or to time buckets, while callers keep using MessageRepository either way
+public interface MessageStorage<T> {
+
+    <S extends T> S save(S entity);
+
+    <S extends T> List<S> insert(Iterable<S> entities);
+
+    // Like insert, but skips messages already stored under their id, so a batch whose write failed partway (an
+    // ordered insert or bucket upsert stops at the first error) can be written again without duplicates
+    <S extends T> List<S> insertMissing(List<S> entities);
+
+    List<Message> findByGroup(String group, Pageable pageable);
+
+    List<Message> findByGroupBefore(String group, LocalDateTime timestamp, ObjectId id, Pageable pageable);
+
+    // Highest sequence assigned in a group so far, used to continue numbering after a restart
+    Message findFirstByGroupOrderBySequenceDesc(String group);
+
+    // Messages a client missed: everything in the group after the last sequence it saw
+    List<Message> findByGroupAndSequenceGreaterThan(String group, long sequence, Pageable pageable);
+
+    // Every message of the group within [from, to), oldest first; either bound may be null. Must be closed.
+    Stream<Message> streamByGroup(String group, LocalDateTime from, LocalDateTime to, int batchSize);
+}
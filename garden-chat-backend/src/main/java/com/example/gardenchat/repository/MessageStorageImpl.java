@@ -0,0 +1,377 @@
+// src/main/java/com/example/gardenchat/repository/MessageStorageImpl.java
+package com.example.gardenchat.repository;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.MessageBucket;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// flat: one document per message in the messages collection, read through its (group, timestamp, _id) and
+//       (group, sequence) indexes
+// bucketed: group messages are appended to one document per (group, time window) in message_buckets, so a history
+//       page or a replay is usually a single document read; direct messages stay in the messages collection.
+//       Existing flat group messages are not moved when switching modes.
+public class MessageStorageImpl implements MessageStorage<Message> {
+
+    static final String BUCKETED = "bucketed";
+
+    // Newest first; id breaks ties between messages sent in the same instant
+    static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getTimestamp, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Message::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // Buckets by window only, so the group_start index serves the sort without an in-memory SORT stage; buckets
+    // sharing a start come back adjacent and windows() merges and orders their messages
+    static final Sort WINDOWS_NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "start");
+
+    static final Comparator<Message> BY_SEQUENCE = Comparator.comparing(Message::getSequence,
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.storage.mode:flat}")
+    private String mode;
+
+    @Value("${chat.storage.bucket.window-minutes:60}")
+    private int windowMinutes; // Length of the time window one bucket covers
+
+    @Value("${chat.storage.bucket.max-messages:500}")
+    private int maxMessagesPerBucket; // Caps document size; a busy window spills into further buckets
+
+    private boolean bucketed() {
+        return BUCKETED.equals(mode);
+    }
+
+    // Only ever called with new messages; in bucketed mode a group message is appended, never replaced
+    @Override
+    public <S extends Message> S save(S entity) {
+        if (bucketed() && entity.getGroup() != null) {
+            append(List.of(entity));
+            return entity;
+        }
+        return mongoTemplate.save(entity);
+    }
+
+    @Override
+    public <S extends Message> List<S> insert(Iterable<S> entities) {
+        List<S> messages = new ArrayList<>();
+        entities.forEach(messages::add);
+        if (!bucketed()) {
+            return new ArrayList<>(mongoTemplate.insertAll(messages));
+        }
+        List<S> direct = new ArrayList<>();
+        List<Message> grouped = new ArrayList<>();
+        for (S message : messages) {
+            if (message.getGroup() == null) {
+                direct.add(message);
+            } else {
+                grouped.add(message);
+            }
+        }
+        if (!direct.isEmpty()) {
+            mongoTemplate.insertAll(direct);
+        }
+        append(grouped);
+        return messages;
+    }
+
+    @Override
+    public <S extends Message> List<S> insertMissing(List<S> entities) {
+        Set<String> stored = storedIds(entities);
+        List<S> missing = new ArrayList<>();
+        for (S message : entities) {
+            if (message.getId() == null || !stored.contains(message.getId())) {
+                missing.add(message);
+            }
+        }
+        if (!missing.isEmpty()) {
+            insert(missing);
+        }
+        return missing;
+    }
+
+    // Ids among the messages that are already stored, flat or (in bucketed mode) in their group's buckets
+    private Set<String> storedIds(List<? extends Message> messages) {
+        List<String> ids = new ArrayList<>();
+        Set<String> groups = new HashSet<>();
+        Set<LocalDateTime> starts = new HashSet<>();
+        for (Message message : messages) {
+            if (message.getId() != null) {
+                ids.add(message.getId());
+                if (message.getGroup() != null && message.getTimestamp() != null) {
+                    groups.add(message.getGroup());
+                    starts.add(windowStart(message.getTimestamp()));
+                }
+            }
+        }
+        Set<String> stored = new HashSet<>();
+        if (ids.isEmpty()) {
+            return stored;
+        }
+        Query flat = Query.query(Criteria.where("_id").in(ids));
+        flat.fields().include("_id");
+        mongoTemplate.find(flat, Message.class).forEach(m -> stored.add(m.getId()));
+        if (bucketed() && !groups.isEmpty()) {
+            // Narrowed to the batch's (group, window) buckets so the lookup stays on the group_start index
+            Query buckets = Query.query(Criteria.where("group").in(groups).and("start").in(starts)
+                    .and("messages.id").in(ids));
+            buckets.fields().include("messages.id");
+            Set<String> wanted = new HashSet<>(ids);
+            for (MessageBucket bucket : mongoTemplate.find(buckets, MessageBucket.class)) {
+                for (Message message : bucket.getMessages()) {
+                    if (wanted.contains(message.getId())) {
+                        stored.add(message.getId());
+                    }
+                }
+            }
+        }
+        return stored;
+    }
+
+    @Override
+    public List<Message> findByGroup(String group, Pageable pageable) {
+        if (!bucketed()) {
+            return mongoTemplate.find(Query.query(Criteria.where("group").is(group)).with(pageable), Message.class);
+        }
+        return newestFirst(Criteria.where("group").is(group), m -> true, pageable.getPageSize());
+    }
+
+    @Override
+    public List<Message> findByGroupBefore(String group, LocalDateTime timestamp, ObjectId id, Pageable pageable) {
+        if (!bucketed()) {
+            Criteria criteria = Criteria.where("group").is(group).orOperator(
+                    Criteria.where("timestamp").lt(timestamp),
+                    Criteria.where("timestamp").is(timestamp).and("_id").lt(id));
+            return mongoTemplate.find(Query.query(criteria).with(pageable), Message.class);
+        }
+        String before = id.toHexString();
+        Predicate<Message> older = m -> m.getTimestamp().isBefore(timestamp)
+                || (m.getTimestamp().isEqual(timestamp) && m.getId().compareTo(before) < 0);
+        return newestFirst(Criteria.where("group").is(group).and("start").lte(windowStart(timestamp)), older,
+                pageable.getPageSize());
+    }
+
+    @Override
+    public Message findFirstByGroupOrderBySequenceDesc(String group) {
+        if (!bucketed()) {
+            return mongoTemplate.findOne(Query.query(Criteria.where("group").is(group))
+                    .with(Sort.by(Sort.Direction.DESC, "sequence")).limit(1), Message.class);
+        }
+        MessageBucket bucket = mongoTemplate.findOne(Query.query(Criteria.where("group").is(group))
+                .with(Sort.by(Sort.Direction.DESC, "lastSequence")).limit(1), MessageBucket.class);
+        return bucket == null ? null : bucket.getMessages().stream().max(BY_SEQUENCE).orElse(null);
+    }
+
+    @Override
+    public List<Message> findByGroupAndSequenceGreaterThan(String group, long sequence, Pageable pageable) {
+        if (!bucketed()) {
+            return mongoTemplate.find(Query.query(Criteria.where("group").is(group).and("sequence").gt(sequence))
+                    .with(pageable), Message.class);
+        }
+        Query query = Query.query(Criteria.where("group").is(group).and("lastSequence").gt(sequence))
+                .with(Sort.by("lastSequence")).cursorBatchSize(2);
+        try (Stream<MessageBucket> buckets = mongoTemplate.stream(query, MessageBucket.class)) {
+            return afterSequence(buckets.iterator(), sequence, pageable.getPageSize());
+        }
+    }
+
+    @Override
+    public Stream<Message> streamByGroup(String group, LocalDateTime from, LocalDateTime to, int batchSize) {
+        if (!bucketed()) {
+            Criteria criteria = Criteria.where("group").is(group);
+            if (from != null || to != null) {
+                Criteria range = Criteria.where("timestamp");
+                if (from != null) {
+                    range = range.gte(from);
+                }
+                if (to != null) {
+                    range = range.lt(to);
+                }
+                criteria = criteria.andOperator(range);
+            }
+            Query query = Query.query(criteria)
+                    .with(Sort.by(Sort.Order.asc("timestamp"), Sort.Order.asc("_id")))
+                    .cursorBatchSize(batchSize);
+            return mongoTemplate.stream(query, Message.class);
+        }
+        Criteria criteria = Criteria.where("group").is(group);
+        if (from != null) {
+            criteria = criteria.and("end").gt(from);
+        }
+        if (to != null) {
+            criteria = criteria.and("start").lt(to);
+        }
+        Query query = Query.query(criteria)
+                .with(WINDOWS_NEWEST_FIRST.reverse())
+                .cursorBatchSize(Math.max(1, batchSize / Math.max(1, maxMessagesPerBucket)));
+        Stream<MessageBucket> buckets = mongoTemplate.stream(query, MessageBucket.class);
+        Iterator<List<Message>> windows = windows(buckets.iterator(), NEWEST_FIRST.reversed());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(windows, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .filter(m -> (from == null || !m.getTimestamp().isBefore(from))
+                        && (to == null || m.getTimestamp().isBefore(to)))
+                .onClose(buckets::close);
+    }
+
+    // Appends messages to the open bucket of their (group, window), one upsert per bucket in one round trip.
+    // The count condition sends a write that would overfill the bucket to a new one.
+    private void append(List<? extends Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<BucketKey, List<Message>> byBucket = new LinkedHashMap<>();
+        for (Message message : messages) {
+            if (message.getId() == null) {
+                message.setId(new ObjectId().toHexString()); // Embedded messages get no id from MongoDB
+            }
+            if (message.getTimestamp() == null) {
+                message.setTimestamp(LocalDateTime.now());
+            }
+            byBucket.computeIfAbsent(new BucketKey(message.getGroup(), windowStart(message.getTimestamp())),
+                    k -> new ArrayList<>()).add(message);
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, MessageBucket.class);
+        for (Map.Entry<BucketKey, List<Message>> entry : byBucket.entrySet()) {
+            List<Message> all = entry.getValue();
+            for (int from = 0; from < all.size(); from += maxMessagesPerBucket) {
+                List<Message> chunk = all.subList(from, Math.min(all.size(), from + maxMessagesPerBucket));
+                bulk.upsert(Query.query(Criteria.where("group").is(entry.getKey().group())
+                                .and("start").is(entry.getKey().start())
+                                .and("count").lte(maxMessagesPerBucket - chunk.size())),
+                        bucketUpdate(entry.getKey(), chunk));
+            }
+        }
+        bulk.execute();
+    }
+
+    private Update bucketUpdate(BucketKey key, List<Message> chunk) {
+        Update update = new Update()
+                .setOnInsert("end", key.start().plusMinutes(windowMinutes))
+                .inc("count", chunk.size())
+                .push("messages").each(chunk.toArray());
+        Long first = null;
+        Long last = null;
+        for (Message message : chunk) {
+            Long sequence = message.getSequence();
+            if (sequence != null) {
+                first = first == null ? sequence : Math.min(first, sequence);
+                last = last == null ? sequence : Math.max(last, sequence);
+            }
+        }
+        if (first != null) {
+            update.min("firstSequence", first).max("lastSequence", last);
+        }
+        return update;
+    }
+
+    // Reads whole windows, newest first, until the page is full; windows don't overlap in time, so messages
+    // from later windows can't belong on the page
+    private List<Message> newestFirst(Criteria criteria, Predicate<Message> filter, int size) {
+        Query query = Query.query(criteria).with(WINDOWS_NEWEST_FIRST).cursorBatchSize(2);
+        try (Stream<MessageBucket> buckets = mongoTemplate.stream(query, MessageBucket.class)) {
+            return page(windows(buckets.iterator(), NEWEST_FIRST), filter, size);
+        }
+    }
+
+    static List<Message> page(Iterator<List<Message>> windows, Predicate<Message> filter, int size) {
+        List<Message> page = new ArrayList<>(size);
+        while (page.size() < size && windows.hasNext()) {
+            for (Message message : windows.next()) {
+                if (filter.test(message)) {
+                    page.add(message);
+                    if (page.size() == size) {
+                        break;
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    // Buckets arrive ordered by lastSequence; reading stops once the next bucket starts above the last message
+    // that would make the page
+    static List<Message> afterSequence(Iterator<MessageBucket> buckets, long sequence, int size) {
+        List<Message> found = new ArrayList<>();
+        while (buckets.hasNext()) {
+            MessageBucket bucket = buckets.next();
+            if (found.size() >= size && bucket.getFirstSequence() != null
+                    && bucket.getFirstSequence() > found.get(size - 1).getSequence()) {
+                break;
+            }
+            for (Message message : bucket.getMessages()) {
+                if (message.getSequence() != null && message.getSequence() > sequence) {
+                    found.add(message);
+                }
+            }
+            found.sort(BY_SEQUENCE);
+        }
+        return found.size() > size ? new ArrayList<>(found.subList(0, size)) : found;
+    }
+
+    // Merges consecutive buckets with the same start into one window, sorted with the given order
+    static Iterator<List<Message>> windows(Iterator<MessageBucket> buckets, Comparator<Message> order) {
+        return new Iterator<>() {
+            private MessageBucket pending = buckets.hasNext() ? buckets.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return pending != null;
+            }
+
+            @Override
+            public List<Message> next() {
+                if (pending == null) {
+                    throw new NoSuchElementException();
+                }
+                LocalDateTime start = pending.getStart();
+                List<Message> window = new ArrayList<>(pending.getMessages());
+                pending = null;
+                while (buckets.hasNext()) {
+                    MessageBucket bucket = buckets.next();
+                    if (!bucket.getStart().isEqual(start)) {
+                        pending = bucket;
+                        break;
+                    }
+                    window.addAll(bucket.getMessages());
+                }
+                window.sort(order);
+                return window;
+            }
+        };
+    }
+
+    // Start of the window holding the timestamp; windows are aligned to the epoch
+    LocalDateTime windowStart(LocalDateTime timestamp) {
+        long minute = timestamp.toEpochSecond(ZoneOffset.UTC) / 60;
+        return LocalDateTime.ofEpochSecond((minute - Math.floorMod(minute, windowMinutes)) * 60, 0, ZoneOffset.UTC);
+    }
+
+    private record BucketKey(String group, LocalDateTime start) {
+    }
+}
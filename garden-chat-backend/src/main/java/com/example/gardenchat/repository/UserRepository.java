@@ -2,10 +2,17 @@
 package com.example.gardenchat.repository;
 
 import com.example.gardenchat.model.User;
+import com.example.gardenchat.model.UserSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.List;
 
 public interface UserRepository extends MongoRepository<User, String> {
     User findByUsername(String username);
-}
-
 
+    // Directory page over the unique username index: an anchored prefix regex and a keyset bound, username and id only
+    @Query(value = "{ 'username': { '$regex': ?0, '$gt': ?1 } }", fields = "{ 'username': 1 }")
+    List<UserSummary> findSummaries(String prefixRegex, String after, Pageable pageable);
+}
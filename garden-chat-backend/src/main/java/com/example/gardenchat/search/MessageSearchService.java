@@ -0,0 +1,349 @@
+// src/main/java/com/example/gardenchat/search/MessageSearchService.java
+package com.example.gardenchat.search;
+
+import com.example.gardenchat.config.SchedulingConfig;
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.MessageBucket;
+import com.example.gardenchat.model.SearchHit;
+import com.example.gardenchat.model.SearchPage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Full-text search over room messages with an in-process inverted index. Broadcasts are handed to a single indexing
+// thread, so a broad query holding the index's read lock never stalls the inbound thread that sent them; at startup
+// the index is reloaded from its snapshot file and caught up from MongoDB with the newest room messages.
+// Only sees local broadcasts between restarts, like the recent message cache.
+@Service
+public class MessageSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchService.class);
+
+    private static final Comparator<Message> OLDEST_FIRST = Comparator.comparing(Message::getTimestamp)
+            .thenComparing(Message::getId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    @Qualifier(SchedulingConfig.MAINTENANCE_SCHEDULER)
+    private TaskExecutor maintenanceExecutor;
+
+    @Value("${chat.search.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode; // Relay and bridged nodes only see part of the traffic, so search stays off there
+
+    @Value("${chat.search.max-documents:1000000}")
+    private int maxDocuments; // Oldest messages drop out of the index beyond this; each costs about 1 KB of heap
+
+    @Value("${chat.search.queue-capacity:10000}")
+    private int queueCapacity; // Broadcasts waiting for the indexing thread; further ones are not indexed
+
+    @Value("${chat.search.default-page-size:20}")
+    private int defaultPageSize; // Page size used when the client doesn't ask for one
+
+    @Value("${chat.search.max-page-size:100}")
+    private int maxPageSize; // Upper bound on the page size a client may request
+
+    @Value("${chat.search.max-results:1000}")
+    private int maxResults; // How deep a client may page into one result list
+
+    @Value("${chat.search.snapshot-path:data/search-index.bin}")
+    private String snapshotPath; // Empty to rebuild from MongoDB on every start
+
+    @Value("${chat.storage.mode:flat}")
+    private String storageMode; // Where the startup catch-up reads room messages from
+
+    @Value("${chat.storage.bucket.window-minutes:60}")
+    private int windowMinutes; // A bucket created this long before the snapshot may still hold newer messages
+
+    private volatile SearchIndex index; // Replaced once if the snapshot turns out to be unreadable
+    private volatile boolean loaded;
+    private final List<Message> arrivedWhileLoading = new ArrayList<>(); // Guarded by itself
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private BlockingQueue<Message> queue;
+    private Thread indexer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        if (enabled && !"simple".equals(brokerMode)) {
+            log.warn("chat.search.enabled=true with chat.broker.mode={}: disabling search, which would only find "
+                    + "messages broadcast on this node", brokerMode);
+            enabled = false;
+        }
+        index = new SearchIndex(maxDocuments);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (enabled) {
+            running = true;
+            indexer = new Thread(this::indexLoop, "SearchIndexer");
+            indexer.setDaemon(true);
+            indexer.start();
+        }
+    }
+
+    // Hands a broadcast message to the indexing thread without waiting; when it has fallen behind by a whole queue
+    // the message is left out of the index rather than slowing down the chat
+    public void index(Message message) {
+        if (!enabled) {
+            return;
+        }
+        if (!queue.offer(message) && dropped.incrementAndGet() % 1000 == 1) {
+            log.warn("Search indexing queue is full; {} broadcasts left out of the index so far", dropped.get());
+        }
+    }
+
+    // Number of broadcasts waiting for the indexing thread
+    public int pending() {
+        return queue.size();
+    }
+
+    // Number of broadcasts left out of the index because the queue was full
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private void indexLoop() {
+        while (running) {
+            try {
+                add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Runs on the indexing thread; messages sent while the index loads are added once it has
+    private void add(Message message) {
+        if (!loaded) {
+            synchronized (arrivedWhileLoading) {
+                if (!loaded) {
+                    arrivedWhileLoading.add(message);
+                    return;
+                }
+            }
+        }
+        if (index.add(message)) {
+            dirty.set(true);
+        }
+    }
+
+    // Room messages containing every word of the query, best match first, optionally limited to one group and to
+    // [from, to). Pages are positions in the ranked list; "after" is the nextCursor of the previous page.
+    public SearchPage search(String query, String group, LocalDateTime from, LocalDateTime to, String after, Integer limit) {
+        if (!enabled) {
+            throw new IllegalArgumentException("Search is disabled");
+        }
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Missing search query");
+        }
+        int offset = offset(after);
+        int size = Math.min(limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize)),
+                maxResults - offset);
+        if (size <= 0) {
+            return new SearchPage(List.of(), 0, null);
+        }
+        long start = System.nanoTime();
+        SearchIndex.Result result = index.search(query, group, from, to, offset, size);
+        chatMetrics.historyQuery("search", loaded ? "index" : "loading", System.nanoTime() - start);
+        List<SearchHit> hits = result.matches().stream().map(m -> new SearchHit(m.message(), m.score())).toList();
+        int end = offset + hits.size();
+        String next = hits.size() == size && end < Math.min(result.total(), maxResults) ? String.valueOf(end) : null;
+        return new SearchPage(hits, result.total(), next);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private static int offset(String after) {
+        if (after == null || after.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(after);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid search cursor: " + after);
+    }
+
+    // Loaded off the main thread because a large snapshot or catch-up takes a while
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            maintenanceExecutor.execute(this::load);
+        }
+    }
+
+    void load() {
+        long start = System.nanoTime();
+        LocalDateTime loadStarted = LocalDateTime.now().minusMinutes(1); // Margin for messages still being written
+        LocalDateTime newest = null;
+        Path snapshot = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        if (snapshot != null && Files.exists(snapshot)) {
+            try {
+                for (Message message : SearchSnapshot.read(snapshot)) {
+                    index.add(message);
+                    if (newest == null || message.getTimestamp().isAfter(newest)) {
+                        newest = message.getTimestamp();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not read search index snapshot {}, rebuilding from MongoDB: {}", snapshot, e.getMessage());
+                index = new SearchIndex(maxDocuments);
+                newest = null;
+            }
+        }
+        int fromSnapshot = index.size();
+        Set<String> recentIds = new HashSet<>(); // Caught-up messages that may also have arrived live
+        try {
+            catchUp(newest, message -> {
+                index.add(message);
+                if (!message.getTimestamp().isBefore(loadStarted)) {
+                    recentIds.add(message.getId());
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not catch the search index up from MongoDB: {}", e.getMessage());
+        }
+        synchronized (arrivedWhileLoading) {
+            for (Message message : arrivedWhileLoading) {
+                if (!recentIds.contains(message.getId())) {
+                    index.add(message);
+                }
+            }
+            arrivedWhileLoading.clear();
+            loaded = true;
+        }
+        dirty.set(index.size() > fromSnapshot);
+        log.info("Search index loaded with {} messages ({} from the snapshot) in {} ms", index.size(), fromSnapshot,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Feeds the newest room messages after since (all of history when null), oldest first, up to what the index
+    // keeps. Read newest first along the _id index, which every collection has: ids are ObjectIds assigned when a
+    // message is sent (or a bucket is created), so their order follows time and the read stops after maxDocuments.
+    void catchUp(LocalDateTime since, Consumer<Message> sink) {
+        List<Message> newest = new ArrayList<>();
+        if ("bucketed".equals(storageMode)) {
+            // A bucket created up to a window before since can still hold messages after it
+            Query query = new Query(since == null ? new Criteria()
+                    : Criteria.where("_id").gt(objectIdAt(since.minusMinutes(windowMinutes + 1L))))
+                    .with(Sort.by(Sort.Direction.DESC, "_id")).cursorBatchSize(2);
+            try (Stream<MessageBucket> buckets = mongoTemplate.stream(query, MessageBucket.class)) {
+                Iterator<MessageBucket> it = buckets.iterator();
+                while (newest.size() < maxDocuments && it.hasNext()) {
+                    MessageBucket bucket = it.next();
+                    for (Message m : bucket.getMessages()) {
+                        if (since == null || m.getTimestamp().isAfter(since)) {
+                            m.setGroup(bucket.getGroup());
+                            newest.add(m);
+                        }
+                    }
+                }
+            }
+        } else {
+            Criteria criteria = Criteria.where("group").ne(null);
+            if (since != null) {
+                criteria = criteria.and("_id").gt(objectIdAt(since.minusSeconds(1))); // Ids only keep whole seconds
+            }
+            Query query = Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "_id"))
+                    .limit(maxDocuments).cursorBatchSize(1000);
+            try (Stream<Message> messages = mongoTemplate.stream(query, Message.class)) {
+                messages.filter(m -> since == null || m.getTimestamp().isAfter(since)).forEach(newest::add);
+            }
+        }
+        newest.sort(OLDEST_FIRST);
+        newest.subList(0, Math.max(0, newest.size() - maxDocuments)).clear();
+        newest.forEach(sink);
+    }
+
+    // Smallest ObjectId generated at the given instant, in the zone LocalDateTime.now() stamps messages with
+    private static ObjectId objectIdAt(LocalDateTime time) {
+        return new ObjectId(Date.from(time.atZone(ZoneId.systemDefault()).toInstant()), 0);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.search.snapshot-interval-ms:300000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    public void scheduleSnapshot() {
+        if (loaded && !snapshotPath.isBlank() && dirty.get()) {
+            snapshot();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (indexer != null) {
+            running = false;
+            indexer.interrupt();
+            indexer.join(TimeUnit.SECONDS.toMillis(5));
+            List<Message> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            rest.forEach(this::add); // So the snapshot below includes them
+        }
+        if (loaded && !snapshotPath.isBlank() && dirty.get()) {
+            snapshot();
+        }
+    }
+
+    // Synchronized so the snapshot at shutdown never writes the file alongside a scheduled one
+    synchronized void snapshot() {
+        dirty.set(false); // Messages added while writing mark it dirty again
+        try {
+            long start = System.nanoTime();
+            List<Message> documents = index.documents();
+            SearchSnapshot.write(Path.of(snapshotPath), documents);
+            log.info("Search index snapshot of {} messages written in {} ms", documents.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            log.warn("Could not write search index snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,363 @@
+// src/main/java/com/example/gardenchat/search/SearchIndex.java
+package com.example.gardenchat.search;
+
+import com.example.gardenchat.model.Message;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over message content, ranked with BM25. Documents get increasing numbers as they are added, so
+// every postings list is sorted and is only ever appended to; once the index is full the oldest documents are
+// dropped from the front of their lists. Searches share a read lock; adds take the write lock briefly.
+final class SearchIndex {
+
+    private static final double K1 = 1.2; // Term frequency saturation
+    private static final double B = 0.75; // Document length normalization
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private final int maxDocuments;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> groupNumbers = new HashMap<>();
+    private final List<String> groupNames = new ArrayList<>();
+
+    // Stored fields of documents [base, next); slots below floor have been evicted
+    private String[] ids = new String[1024];
+    private String[] senders = new String[1024];
+    private String[] contents = new String[1024];
+    private int[] groups = new int[1024];
+    private int[] lengths = new int[1024];
+    private long[] times = new long[1024];
+    private long[] sequences = new long[1024];
+    private int base;
+    private int floor;
+    private int next;
+    private long totalLength; // Sum of the term counts of live documents, for the average document length
+
+    SearchIndex(int maxDocuments) {
+        this.maxDocuments = maxDocuments;
+    }
+
+    // Indexes a group message; messages without a group or content are ignored
+    boolean add(Message message) {
+        if (message.getGroup() == null || message.getContent() == null || message.getId() == null) {
+            return false;
+        }
+        Map<String, Integer> frequencies = frequencies(message.getContent());
+        lock.writeLock().lock();
+        try {
+            int doc = next++;
+            ensureCapacity();
+            int slot = doc - base;
+            ids[slot] = message.getId();
+            senders[slot] = message.getSender();
+            contents[slot] = message.getContent();
+            groups[slot] = groupNumbers.computeIfAbsent(message.getGroup(), g -> {
+                groupNames.add(g);
+                return groupNames.size() - 1;
+            });
+            times[slot] = message.getTimestamp() == null ? 0 : toMillis(message.getTimestamp());
+            sequences[slot] = message.getSequence() == null ? -1 : message.getSequence();
+            int length = 0;
+            for (Map.Entry<String, Integer> e : frequencies.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), t -> new Postings()).append(doc, e.getValue());
+                length += e.getValue();
+            }
+            lengths[slot] = length;
+            totalLength += length;
+            while (next - floor > maxDocuments) {
+                evictOldest();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Documents matching every query term within the filters, best first; newer documents win ties
+    Result search(String query, String group, LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(terms(query)));
+        if (terms.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+        long fromMillis = from == null ? Long.MIN_VALUE : toMillis(from);
+        long toMillis = to == null ? Long.MAX_VALUE : toMillis(to);
+        int wanted = offset + limit;
+        lock.readLock().lock();
+        try {
+            int groupNumber = -1;
+            if (group != null) {
+                Integer number = groupNumbers.get(group);
+                if (number == null) {
+                    return new Result(List.of(), 0);
+                }
+                groupNumber = number;
+            }
+            Postings[] lists = new Postings[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return new Result(List.of(), 0);
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(Postings::size)); // Drive the intersection from the rarest term
+            int live = next - floor;
+            double averageLength = live == 0 ? 1 : (double) totalLength / live;
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = Math.log(1 + (live - lists[i].size() + 0.5) / (lists[i].size() + 0.5));
+            }
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(Hit.WORST_FIRST);
+            int[] cursors = new int[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                cursors[i] = lists[i].start;
+            }
+            long total = 0;
+            Postings rarest = lists[0];
+            candidates:
+            for (int p = rarest.start; p < rarest.end; p++) {
+                int doc = rarest.docs[p];
+                int slot = doc - base;
+                if ((groupNumber >= 0 && groups[slot] != groupNumber) || times[slot] < fromMillis || times[slot] >= toMillis) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+                double score = idf[0] * bm25(rarest.frequencies[p], norm);
+                for (int i = 1; i < lists.length; i++) {
+                    int at = lists[i].seek(cursors[i], doc);
+                    cursors[i] = at;
+                    if (at == lists[i].end || lists[i].docs[at] != doc) {
+                        continue candidates;
+                    }
+                    score += idf[i] * bm25(lists[i].frequencies[at], norm);
+                }
+                total++;
+                if (best.size() < wanted) {
+                    best.add(new Hit(doc, score));
+                } else if (Hit.WORST_FIRST.compare(new Hit(doc, score), best.peek()) > 0) {
+                    best.poll();
+                    best.add(new Hit(doc, score));
+                }
+            }
+            List<Hit> ranked = new ArrayList<>(best);
+            ranked.sort(Hit.WORST_FIRST.reversed());
+            List<Match> matches = new ArrayList<>(Math.max(0, Math.min(limit, ranked.size() - offset)));
+            for (int i = offset; i < ranked.size(); i++) {
+                matches.add(new Match(message(ranked.get(i).doc), ranked.get(i).score));
+            }
+            return new Result(matches, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return next - floor;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The live documents, oldest first; taken under the lock, materialized afterwards
+    List<Message> documents() {
+        String[] idCopy;
+        String[] senderCopy;
+        String[] contentCopy;
+        int[] groupCopy;
+        long[] timeCopy;
+        long[] sequenceCopy;
+        List<String> names;
+        lock.readLock().lock();
+        try {
+            int from = floor - base;
+            int to = next - base;
+            idCopy = Arrays.copyOfRange(ids, from, to);
+            senderCopy = Arrays.copyOfRange(senders, from, to);
+            contentCopy = Arrays.copyOfRange(contents, from, to);
+            groupCopy = Arrays.copyOfRange(groups, from, to);
+            timeCopy = Arrays.copyOfRange(times, from, to);
+            sequenceCopy = Arrays.copyOfRange(sequences, from, to);
+            names = List.copyOf(groupNames);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Message> documents = new ArrayList<>(idCopy.length);
+        for (int i = 0; i < idCopy.length; i++) {
+            documents.add(message(idCopy[i], names.get(groupCopy[i]), senderCopy[i], contentCopy[i], timeCopy[i], sequenceCopy[i]));
+        }
+        return documents;
+    }
+
+    // Lower-cased runs of letters and digits; overlong runs (hashes, pasted data) are not indexed
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static Map<String, Integer> frequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms(text)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static double bm25(int frequency, double norm) {
+        return frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private void evictOldest() {
+        int slot = floor - base;
+        for (String term : frequencies(contents[slot]).keySet()) {
+            Postings list = postings.get(term);
+            list.start++; // The oldest document is always first in each of its lists
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengths[slot];
+        ids[slot] = null;
+        senders[slot] = null;
+        contents[slot] = null;
+        floor++;
+    }
+
+    // Grows the stored fields, or slides them down over evicted slots when that frees enough room
+    private void ensureCapacity() {
+        if (next - base <= ids.length) {
+            return;
+        }
+        int live = floor - base;
+        int capacity = (next - floor) * 2 <= ids.length ? ids.length : ids.length * 2;
+        ids = shift(ids, new String[capacity], live);
+        senders = shift(senders, new String[capacity], live);
+        contents = shift(contents, new String[capacity], live);
+        int[] newGroups = new int[capacity];
+        System.arraycopy(groups, live, newGroups, 0, groups.length - live);
+        groups = newGroups;
+        int[] newLengths = new int[capacity];
+        System.arraycopy(lengths, live, newLengths, 0, lengths.length - live);
+        lengths = newLengths;
+        long[] newTimes = new long[capacity];
+        System.arraycopy(times, live, newTimes, 0, times.length - live);
+        times = newTimes;
+        long[] newSequences = new long[capacity];
+        System.arraycopy(sequences, live, newSequences, 0, sequences.length - live);
+        sequences = newSequences;
+        base = floor;
+    }
+
+    private static String[] shift(String[] from, String[] to, int offset) {
+        System.arraycopy(from, offset, to, 0, from.length - offset);
+        return to;
+    }
+
+    private Message message(int doc) {
+        int slot = doc - base;
+        return message(ids[slot], groupNames.get(groups[slot]), senders[slot], contents[slot], times[slot], sequences[slot]);
+    }
+
+    private static Message message(String id, String group, String sender, String content, long time, long sequence) {
+        Message message = new Message();
+        message.setId(id);
+        message.setGroup(group);
+        message.setSender(sender);
+        message.setContent(content);
+        message.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
+        message.setSequence(sequence < 0 ? null : sequence);
+        return message;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    record Match(Message message, double score) {
+    }
+
+    record Result(List<Match> matches, long total) {
+    }
+
+    private record Hit(int doc, double score) {
+        // Lower score first, then older first, so the heap's head is the hit to drop
+        static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score).thenComparingInt(Hit::doc);
+    }
+
+    // Sorted document numbers of one term with the term's frequency in each; [start, end) is live
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] frequencies = new int[4];
+        int start;
+        int end;
+
+        void append(int doc, int frequency) {
+            if (end == docs.length) {
+                int live = end - start;
+                int capacity = live * 2 <= docs.length ? docs.length : docs.length * 2;
+                docs = Arrays.copyOfRange(docs, start, start + capacity);
+                frequencies = Arrays.copyOfRange(frequencies, start, start + capacity);
+                start = 0;
+                end = live;
+            }
+            docs[end] = doc;
+            frequencies[end++] = frequency;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        // First position at or after from holding a document >= doc; galloping, then binary search
+        int seek(int from, int doc) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < end && docs[high] < doc) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, end);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (docs[mid] < doc) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// src/main/java/com/example/gardenchat/search/SearchSnapshot.java
+package com.example.gardenchat.search;
+
+import com.example.gardenchat.model.Message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// GZIP file holding the indexed messages, oldest first. Postings aren't stored: re-tokenizing on load is cheap
+// next to reading the messages back from MongoDB, and keeps the format independent of the index layout.
+final class SearchSnapshot {
+
+    private static final int MAGIC = 0x47435349; // "GCSI"
+    private static final int VERSION = 1;
+
+    private SearchSnapshot() {
+    }
+
+    // Written next to the target and moved over it, so a crash never leaves a truncated snapshot behind
+    static void write(Path path, List<Message> messages) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(messages.size());
+                for (Message message : messages) {
+                    writeString(out, message.getId());
+                    writeString(out, message.getGroup());
+                    writeString(out, message.getSender());
+                    writeString(out, message.getContent());
+                    out.writeLong(message.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                    out.writeLong(message.getSequence() == null ? -1 : message.getSequence());
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static List<Message> read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path), 64 * 1024)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a search index snapshot: " + path);
+            }
+            int count = in.readInt();
+            List<Message> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Message message = new Message();
+                message.setId(readString(in));
+                message.setGroup(readString(in));
+                message.setSender(readString(in));
+                message.setContent(readString(in));
+                message.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneId.systemDefault()));
+                long sequence = in.readLong();
+                message.setSequence(sequence < 0 ? null : sequence);
+                messages.add(message);
+            }
+            return messages;
+        }
+    }
+
+    // Length-prefixed UTF-8; writeUTF would cap content at 64 KB of encoded text
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
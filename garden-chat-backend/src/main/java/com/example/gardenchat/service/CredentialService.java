@@ -0,0 +1,163 @@
+// src/main/java/com/example/gardenchat/service/CredentialService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.User; // Import the User model
+import com.example.gardenchat.repository.UserRepository; // Import UserRepository for database access
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Registers users with hashed passwords and verifies logins. Successful verifications are remembered for a while
+// in a bounded cache, so repeat logins (e.g. every client reconnecting after a deploy) skip both the MongoDB
+// lookup and the deliberately slow hash. The cache keeps only a keyed digest of the password, never the password.
+@Service
+public class CredentialService {
+
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${chat.auth.cache.max-entries:10000}")
+    private int maxEntries; // Users whose last verified credential is remembered; 0 disables the cache
+
+    @Value("${chat.auth.cache.ttl-ms:600000}")
+    private long ttlMillis; // How long a verification is trusted; bounds staleness after a change on another node
+
+    private Map<String, Verified> verified;
+    private SecretKeySpec digestKey;
+
+    @PostConstruct
+    void init() {
+        // Least recently used users are dropped first once the cache is full
+        verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        // Per-process key: cached digests are useless outside this JVM and are never persisted
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        digestKey = new SecretKeySpec(key, DIGEST_ALGORITHM);
+    }
+
+    // Stores a new user with an encoded password; false when the username is already taken
+    public boolean register(String username, String rawPassword) {
+        // The unique username index also rejects concurrent duplicates, but only once it has been built, which can
+        // be late when MongoDB was unreachable at startup (MongoIndexConfig retries); this check covers that window
+        if (userRepository.findByUsername(username) != null) {
+            return false;
+        }
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(passwordEncoder.encode(rawPassword));
+        try {
+            userRepository.insert(user); // The unique username index rejects a duplicate registered since the check
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        invalidate(username);
+        return true;
+    }
+
+    // True when the password matches the stored credential for the username
+    public boolean verify(String username, String rawPassword) {
+        if (username == null || rawPassword == null) {
+            chatMetrics.loginAttempt("rejected");
+            return false;
+        }
+        byte[] digest = digest(username, rawPassword);
+        if (isCached(username, digest)) {
+            chatMetrics.loginAttempt("cached");
+            return true;
+        }
+        User user = userRepository.findByUsername(username);
+        if (user == null || user.getPassword() == null || !passwordEncoder.matches(rawPassword, user.getPassword())) {
+            chatMetrics.loginAttempt("rejected");
+            return false;
+        }
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            // Legacy plain-text (or weaker) credential: replace it with a current hash now that we know the password
+            user.setPassword(passwordEncoder.encode(rawPassword));
+            userRepository.save(user);
+        }
+        remember(username, digest);
+        chatMetrics.loginAttempt("verified");
+        return true;
+    }
+
+    // Forgets any cached verification, e.g. after the user's password changed on this node
+    public void invalidate(String username) {
+        if (maxEntries > 0) {
+            synchronized (verified) {
+                verified.remove(username);
+            }
+        }
+    }
+
+    public int cachedUsers() {
+        synchronized (verified) {
+            return verified.size();
+        }
+    }
+
+    private boolean isCached(String username, byte[] digest) {
+        if (maxEntries <= 0) {
+            return false;
+        }
+        Verified entry;
+        synchronized (verified) {
+            entry = verified.get(username);
+            if (entry != null && System.currentTimeMillis() > entry.expiresAtMillis()) {
+                verified.remove(username);
+                entry = null;
+            }
+        }
+        // Constant-time comparison; a wrong password falls through to the full check
+        return entry != null && MessageDigest.isEqual(entry.digest(), digest);
+    }
+
+    private void remember(String username, byte[] digest) {
+        if (maxEntries > 0) {
+            synchronized (verified) {
+                verified.put(username, new Verified(digest, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+    }
+
+    private byte[] digest(String username, String rawPassword) {
+        try {
+            Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " unavailable", e);
+        }
+    }
+
+    // Keyed digest of the last password that verified, and when to stop trusting it
+    private record Verified(byte[] digest, long expiresAtMillis) {
+    }
+}
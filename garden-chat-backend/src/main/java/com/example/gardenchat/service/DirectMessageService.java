@@ -0,0 +1,224 @@
+// src/main/java/com/example/gardenchat/service/DirectMessageService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.config.SchedulingConfig;
+import com.example.gardenchat.model.DeliveryReceipt;
+import com.example.gardenchat.model.Message; // Import the Message entity/model
+import com.example.gardenchat.model.UnreadCounter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Pushes direct messages to the receiver's sessions on /user/queue/messages and sends delivery and read receipts
+// back to the sender on /user/queue/receipts, so clients don't poll for them. Unread counts per conversation are
+// kept in memory and written to MongoDB in the background as increments and resets, so counts from other nodes
+// add up instead of overwriting each other.
+@Service
+public class DirectMessageService {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectMessageService.class);
+
+    public static final String MESSAGES_QUEUE = "/queue/messages";
+    public static final String RECEIPTS_QUEUE = "/queue/receipts";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.dm.idle-ttl-ms:600000}")
+    private long idleTtlMillis; // Inboxes untouched for this long are dropped from memory once flushed
+
+    private final Map<String, Inbox> inboxes = new ConcurrentHashMap<>();
+
+    // Called once the message is stored: counts it as unread and pushes it to every session of the receiver
+    public void deliver(Message message) {
+        String receiver = message.getReceiver();
+        inbox(receiver).received(message.getSender());
+        messagingTemplate.convertAndSendToUser(receiver, MESSAGES_QUEUE, message);
+        if (message.getSender() != null && userRegistry.getUser(receiver) != null) {
+            messagingTemplate.convertAndSendToUser(message.getSender(), RECEIPTS_QUEUE,
+                    new DeliveryReceipt(message.getSender(), receiver, message.getId(), DeliveryReceipt.DELIVERED));
+        }
+    }
+
+    // The reader has seen everything from sender up to messageId
+    public void markRead(String reader, String sender, String messageId) {
+        inbox(reader).read(sender, messageId);
+        messagingTemplate.convertAndSendToUser(sender, RECEIPTS_QUEUE,
+                new DeliveryReceipt(sender, reader, messageId, DeliveryReceipt.READ));
+    }
+
+    // Unread message count per sender, for conversations with anything unread
+    public Map<String, Long> unread(String username) {
+        return inbox(username).unread();
+    }
+
+    public int inboxes() {
+        return inboxes.size();
+    }
+
+    private Inbox inbox(String username) {
+        while (true) {
+            // Loaded outside the map so a slow read doesn't block other users' inboxes
+            Inbox inbox = inboxes.computeIfAbsent(username, u -> new Inbox());
+            if (inbox.open(username, this::stored)) {
+                return inbox;
+            }
+            // Evicted by a concurrent flush; the next one starts from the stored counts
+        }
+    }
+
+    private List<UnreadCounter> stored(String username) {
+        try {
+            return mongoTemplate.find(Query.query(Criteria.where("receiver").is(username)), UnreadCounter.class);
+        } catch (DataAccessException e) {
+            log.warn("Could not load unread counters of {}: {}", username, e.getMessage());
+            return List.of();
+        }
+    }
+
+    // Writes pending changes in one bulk round trip and forgets idle inboxes that have nothing left to write.
+    // Synchronized so the final flush at shutdown never runs alongside a scheduled one.
+    @Scheduled(fixedDelayString = "${chat.dm.flush-interval-ms:5000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    @PreDestroy
+    public synchronized void flush() {
+        Map<String, Map<String, Pending>> drained = new HashMap<>();
+        long idleBefore = System.currentTimeMillis() - idleTtlMillis;
+        inboxes.forEach((username, inbox) -> {
+            Map<String, Pending> pending = inbox.drain();
+            if (!pending.isEmpty()) {
+                drained.put(username, pending);
+            } else if (inbox.close(idleBefore)) {
+                inboxes.remove(username, inbox);
+            }
+        });
+        if (drained.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UnreadCounter.class);
+        drained.forEach((receiver, conversations) -> conversations.forEach((sender, pending) -> {
+            Update update = pending.reset ? new Update().set("unread", pending.added) : new Update().inc("unread", pending.added);
+            if (pending.lastRead != null) {
+                update.set("lastRead", pending.lastRead);
+            }
+            bulk.upsert(Query.query(Criteria.where("receiver").is(receiver).and("sender").is(sender)), update);
+        }));
+        try {
+            bulk.execute();
+        } catch (DataAccessException e) {
+            log.warn("Could not write unread counters for {} users, retrying later: {}", drained.size(), e.getMessage());
+            drained.forEach((username, pending) -> inboxes.computeIfAbsent(username, u -> new Inbox()).restore(pending));
+        }
+    }
+
+    // Unwritten change to one conversation: a reset to zero (a read) and/or messages added since
+    private static final class Pending {
+        boolean reset;
+        long added;
+        String lastRead;
+
+        void merge(Pending later) {
+            if (later.reset) {
+                reset = true;
+                added = later.added;
+            } else {
+                added += later.added;
+            }
+            if (later.lastRead != null) {
+                lastRead = later.lastRead;
+            }
+        }
+    }
+
+    // One receiver's conversations: the counts as stored plus the changes made on this node since the last flush
+    private static final class Inbox {
+        private final Map<String, Long> unread = new HashMap<>();
+        private Map<String, Pending> pending = new HashMap<>();
+        private boolean loaded;
+        private boolean closed;
+        private long touched;
+
+        // Loads the stored counts on first use; false once the inbox has been evicted
+        synchronized boolean open(String username, Function<String, List<UnreadCounter>> loader) {
+            if (closed) {
+                return false;
+            }
+            if (!loaded) {
+                for (UnreadCounter counter : loader.apply(username)) {
+                    unread.merge(counter.getSender(), counter.getUnread(), Long::sum);
+                }
+                loaded = true;
+            }
+            touched = System.currentTimeMillis();
+            return true;
+        }
+
+        // Closes the inbox if it has nothing to write and hasn't been used since idleBefore
+        synchronized boolean close(long idleBefore) {
+            closed = pending.isEmpty() && touched < idleBefore;
+            return closed;
+        }
+
+        synchronized void received(String sender) {
+            unread.merge(sender, 1L, Long::sum);
+            pending.computeIfAbsent(sender, s -> new Pending()).added++;
+        }
+
+        synchronized void read(String sender, String messageId) {
+            unread.remove(sender);
+            Pending change = pending.computeIfAbsent(sender, s -> new Pending());
+            change.reset = true;
+            change.added = 0;
+            change.lastRead = messageId;
+        }
+
+        synchronized Map<String, Long> unread() {
+            Map<String, Long> counts = new HashMap<>();
+            unread.forEach((sender, count) -> {
+                if (count > 0) {
+                    counts.put(sender, count);
+                }
+            });
+            return counts;
+        }
+
+        synchronized Map<String, Pending> drain() {
+            Map<String, Pending> drained = pending;
+            pending = new HashMap<>();
+            return drained;
+        }
+
+        // Puts back changes that failed to write, ahead of anything that happened since
+        synchronized void restore(Map<String, Pending> failed) {
+            Map<String, Pending> merged = new HashMap<>(failed);
+            pending.forEach((sender, later) -> merged.merge(sender, later, (earlier, next) -> {
+                earlier.merge(next);
+                return earlier;
+            }));
+            pending = merged;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// src/main/java/com/example/gardenchat/service/GroupSequencer.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message; // Import the Message entity/model
+import com.example.gardenchat.repository.MessageRepository; // Import the MessageRepository for data access
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out per-group sequence numbers so clients can ask for exactly the messages they missed.
+// local: an in-memory counter per group, continued from the highest stored sequence after a restart (single node)
+// mongo: blocks of block-size numbers reserved with one atomic $inc on a counter document per group, shared by every
+// node (relay and bridged broker modes switch to it at startup) and handed out locally. Numbers stay unique and increase
+// on each node, but nodes interleave by up to a block and the numbers a node never uses are gaps clients must not wait for.
+// When the starting point can't be read from MongoDB the send fails rather than guessing; the next send retries.
+// Group names come from client destinations, so only max-groups groups are held per node: the one idle longest is
+// dropped and reloads its starting point from MongoDB on its next send.
+@Service
+public class GroupSequencer {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupSequencer.class);
+
+    static final String COUNTERS_COLLECTION = "group_sequences";
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.sequence.allocator:local}")
+    private String allocator;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode; // Any mode but simple means several nodes send to the same groups
+
+    @Value("${chat.sequence.block-size:100}")
+    private int blockSize; // Numbers reserved per MongoDB round trip in mongo mode
+
+    @Value("${chat.sequence.max-groups:10000}")
+    private int maxGroups; // Counters or blocks held per node; keep well above the groups active within a flush interval
+
+    static final int MAX_GROUP_NAME_LENGTH = 100;
+
+    private final Map<String, AtomicLong> counters = leastRecentlyUsed(); // Guarded by itself
+    private final Map<String, Block> blocks = leastRecentlyUsed(); // Guarded by itself
+
+    // Per-node counters would hand out the same numbers on every node, so a multi-node broker always shares them
+    @PostConstruct
+    void init() {
+        if (!"simple".equals(brokerMode) && !"mongo".equals(allocator)) {
+            log.warn("chat.sequence.allocator={} with chat.broker.mode={}: using the mongo allocator so nodes don't hand "
+                    + "out the same sequences", allocator, brokerMode);
+            allocator = "mongo";
+        }
+    }
+
+    // Next sequence for the group, strictly greater than every sequence this node handed out before
+    public long next(String group) {
+        checkGroupName(group);
+        if ("mongo".equals(allocator)) {
+            return nextShared(group);
+        }
+        AtomicLong counter;
+        synchronized (counters) {
+            counter = counters.get(group);
+        }
+        if (counter == null) {
+            // Queried outside the map so a slow read doesn't hold up other groups; a racing seed reads the same value
+            long highest = highestStored(group);
+            synchronized (counters) {
+                counter = counters.computeIfAbsent(group, g -> new AtomicLong(highest));
+            }
+        }
+        return counter.incrementAndGet();
+    }
+
+    // Rejects names no client should send before they become map keys and MongoDB queries
+    static void checkGroupName(String group) {
+        if (group == null || group.isBlank() || group.length() > MAX_GROUP_NAME_LENGTH
+                || group.chars().anyMatch(Character::isISOControl)) {
+            throw new IllegalArgumentException("Invalid group name");
+        }
+    }
+
+    private long nextShared(String group) {
+        Block block;
+        synchronized (blocks) {
+            block = blocks.computeIfAbsent(group, g -> new Block());
+        }
+        synchronized (block) { // Only senders to this group wait, and only while a new block is reserved
+            if (block.next > block.end) {
+                long end = reserve(group, block);
+                block.next = end - blockSize + 1;
+                block.end = end;
+            }
+            return block.next++;
+        }
+    }
+
+    // Takes the next block-size numbers from the shared counter; returns the last of them
+    private long reserve(String group, Block block) {
+        Query query = Query.query(Criteria.where("_id").is(group));
+        if (!block.seeded) {
+            // Never go below numbers the local allocator may have used before the switch
+            mongoTemplate.upsert(query, new Update().max("value", highestStored(group)), COUNTERS_COLLECTION);
+            block.seeded = true;
+        }
+        Document counter = mongoTemplate.findAndModify(query, new Update().inc("value", (long) blockSize),
+                FindAndModifyOptions.options().returnNew(true).upsert(true), Document.class, COUNTERS_COLLECTION);
+        return ((Number) counter.get("value")).longValue();
+    }
+
+    private long highestStored(String group) {
+        Message last = messageRepository.findFirstByGroupOrderBySequenceDesc(group);
+        return last == null || last.getSequence() == null ? 0 : last.getSequence();
+    }
+
+    // Access ordered, so once more than max-groups are held the group idle longest is dropped
+    private <V> Map<String, V> leastRecentlyUsed() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxGroups;
+            }
+        };
+    }
+
+    private static final class Block {
+        private long next = 1; // Guarded by the block's monitor; next > end means a new block is needed
+        private long end;
+        private boolean seeded; // The shared counter has been raised to the highest stored sequence
+    }
+}
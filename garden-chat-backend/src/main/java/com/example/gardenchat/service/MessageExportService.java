@@ -0,0 +1,52 @@
+// src/main/java/com/example/gardenchat/service/MessageExportService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message; // Import the Message entity/model
+import com.example.gardenchat.repository.MessageRepository; // Import the MessageRepository for data access
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Streams a room's history as newline-delimited JSON straight from a Mongo cursor, one message at a time
+@Service
+public class MessageExportService {
+
+    @Autowired
+    private MessageRepository messageRepository; // Reads the flat collection or the time buckets (chat.storage.mode)
+
+    @Autowired
+    private ObjectMapper objectMapper; // Spring's mapper, so timestamps are written the same way as the REST API
+
+    @Value("${chat.export.cursor-batch-size:1000}")
+    private int cursorBatchSize; // Documents fetched from Mongo per cursor round trip
+
+    // Writes every message of the group within [from, to) to the output; either bound may be null. Returns the count.
+    public long exportGroup(String group, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        // Don't flush per message; the servlet output stream buffers and the caller flushes at the end
+        ObjectWriter writer = objectMapper.writerFor(Message.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (Stream<Message> messages = messageRepository.streamByGroup(group, from, to, cursorBatchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // The caller owns the stream
+            generator.setRootValueSeparator(null); // Lines are separated by the explicit newline below
+            Iterator<Message> it = messages.iterator();
+            while (it.hasNext()) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,145 @@
+// src/main/java/com/example/gardenchat/service/MessageHistoryService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message; // Import the Message entity/model
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.MessagePage;
+import com.example.gardenchat.repository.MessageRepository; // Import the MessageRepository for data access
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Serves message history as keyset pages on (timestamp, id) so each page is a single index-range scan
+@Service
+public class MessageHistoryService {
+
+    // Newest first; _id breaks ties between messages sent in the same instant
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("_id"));
+
+    // Separates the timestamp and id parts of a cursor
+    private static final char CURSOR_SEPARATOR = '_';
+
+    // Injects the MessageRepository for database operations related to Message entities
+    @Autowired
+    private MessageRepository messageRepository;
+
+    // Recent messages of hot rooms; answers the first page of a group without a database read
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${chat.history.default-page-size:50}")
+    private int defaultPageSize; // Page size used when the client doesn't ask for one
+
+    @Value("${chat.history.max-page-size:200}")
+    private int maxPageSize; // Upper bound on the page size a client may request
+
+    // Direct messages received by a user, older than the given cursor (or newest when the cursor is null)
+    public MessagePage receiverPage(String receiver, String before, Integer limit) {
+        Pageable pageable = pageable(limit);
+        Cursor cursor = Cursor.parse(before);
+        long start = System.nanoTime();
+        List<Message> messages = cursor == null
+                ? messageRepository.findByReceiver(receiver, pageable)
+                : messageRepository.findByReceiverBefore(receiver, cursor.timestamp(), cursor.id(), pageable);
+        chatMetrics.historyQuery("receiver", "mongo", System.nanoTime() - start);
+        return toPage(messages, pageable.getPageSize());
+    }
+
+    // Messages posted to a group room, older than the given cursor (or newest when the cursor is null)
+    public MessagePage groupPage(String group, String before, Integer limit) {
+        Pageable pageable = pageable(limit);
+        Cursor cursor = Cursor.parse(before);
+        long start = System.nanoTime();
+        if (cursor != null) {
+            // Older pages always come from MongoDB
+            List<Message> messages = messageRepository.findByGroupBefore(group, cursor.timestamp(), cursor.id(), pageable);
+            chatMetrics.historyQuery("group", "mongo", System.nanoTime() - start);
+            return toPage(messages, pageable.getPageSize());
+        }
+        List<Message> messages = recentMessageCache.newest(group, pageable.getPageSize());
+        String source = "cache";
+        if (messages == null) {
+            messages = messageRepository.findByGroup(group, pageable);
+            // A short page means this is the room's entire history
+            messages = recentMessageCache.seed(group, messages, messages.size() < pageable.getPageSize(), pageable.getPageSize());
+            source = "mongo";
+        }
+        chatMetrics.historyQuery("group", source, System.nanoTime() - start);
+        return toPage(messages, pageable.getPageSize());
+    }
+
+    // Messages posted to a group after the given sequence, oldest first, for a client catching up after a reconnect.
+    // The cost follows the size of the gap: a cache scan when it covers the gap, otherwise one index range read.
+    public MessagePage groupSince(String group, long sequence, Integer limit) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Invalid sequence: " + sequence);
+        }
+        int size = pageable(limit).getPageSize();
+        long start = System.nanoTime();
+        List<Message> messages = recentMessageCache.since(group, sequence, size);
+        String source = "cache";
+        if (messages == null) {
+            messages = new ArrayList<>(messageRepository.findByGroupAndSequenceGreaterThan(group, sequence,
+                    PageRequest.of(0, size, Sort.by("sequence"))));
+            if (messages.size() < size) {
+                // The newest broadcasts may still be waiting in the write-behind queue
+                long last = messages.isEmpty() ? sequence : messages.get(messages.size() - 1).getSequence();
+                messages.addAll(recentMessageCache.cachedSince(group, last, size - messages.size()));
+            }
+            source = "mongo";
+        }
+        chatMetrics.historyQuery("since", source, System.nanoTime() - start);
+        String next = messages.size() == size ? String.valueOf(messages.get(size - 1).getSequence()) : null;
+        return new MessagePage(messages, next);
+    }
+
+    private Pageable pageable(Integer limit) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return PageRequest.of(0, size, NEWEST_FIRST);
+    }
+
+    // A full page means there may be more; the last (oldest) message becomes the next cursor
+    static MessagePage toPage(List<Message> messages, int pageSize) {
+        String next = null;
+        if (messages.size() == pageSize && !messages.isEmpty()) {
+            next = Cursor.of(messages.get(messages.size() - 1));
+        }
+        return new MessagePage(messages, next);
+    }
+
+    // Position in history encoded as "<ISO timestamp>_<id>"
+    record Cursor(LocalDateTime timestamp, ObjectId id) {
+
+        static String of(Message message) {
+            return message.getTimestamp() + String.valueOf(CURSOR_SEPARATOR) + message.getId();
+        }
+
+        static Cursor parse(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            int split = value.lastIndexOf(CURSOR_SEPARATOR);
+            try {
+                if (split > 0 && ObjectId.isValid(value.substring(split + 1))) {
+                    return new Cursor(LocalDateTime.parse(value.substring(0, split)),
+                            new ObjectId(value.substring(split + 1)));
+                }
+            } catch (DateTimeParseException e) {
+                // Fall through to the error below
+            }
+            throw new IllegalArgumentException("Invalid history cursor: " + value);
+        }
+    }
+}
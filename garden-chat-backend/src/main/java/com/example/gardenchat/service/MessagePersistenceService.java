@@ -0,0 +1,211 @@
+// src/main/java/com/example/gardenchat/service/MessagePersistenceService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message; // Import the Message entity/model
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.repository.MessageRepository; // Import the MessageRepository for data access
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-behind stage for chat messages: callers enqueue, a single writer thread drains into Mongo in batches.
+// The messages were already broadcast, so a failed batch is retried with backoff (skipping whatever the failed
+// write did store) and only written to the dead-letter file, as NDJSON, once the retries are used up.
+@Service
+public class MessagePersistenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePersistenceService.class);
+
+    // Injects the MessageRepository for database operations related to Message entities
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.persistence.queue-capacity:10000}")
+    private int queueCapacity; // Maximum number of messages waiting to be written
+
+    @Value("${chat.persistence.batch-size:200}")
+    private int batchSize; // Maximum number of messages per insertAll call
+
+    @Value("${chat.persistence.flush-interval-ms:100}")
+    private long flushIntervalMs; // Longest time a partial batch waits before being written
+
+    @Value("${chat.persistence.offer-timeout-ms:50}")
+    private long offerTimeoutMs; // How long a producer blocks on a full queue before writing inline
+
+    @Value("${chat.persistence.max-retries:5}")
+    private int maxRetries; // Further attempts for a failed batch; only one attempt is made while shutting down
+
+    @Value("${chat.persistence.retry-backoff-ms:200}")
+    private long retryBackoffMs; // Wait before the first retry, doubled for each further one
+
+    @Value("${chat.persistence.dead-letter-path:data/undelivered-messages.ndjson}")
+    private String deadLetterPath; // Batches that could not be written after every retry are appended here
+
+    private BlockingQueue<Message> queue;
+    private Thread writer;
+    private volatile boolean running;
+    // Producers offer under the read lock and shutdown closes the gate under the write lock, so no offer can land
+    // after the writer's final drain
+    private final ReadWriteLock gate = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::drainLoop, "MessageWriteBehind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Queues a message for persistence; when the queue stays full the caller writes it itself (backpressure)
+    public void enqueue(Message message) {
+        gate.readLock().lock();
+        try {
+            if (running && queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            gate.readLock().unlock();
+        }
+        long start = System.nanoTime();
+        messageRepository.save(message);
+        chatMetrics.persistedInline(System.nanoTime() - start);
+    }
+
+    // Number of messages accepted but not yet written
+    public int pending() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Message first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                flush(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            messageRepository.insert(batch);
+            chatMetrics.persistedBatch(batch.size(), System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist batch of {} messages, retrying: {}", batch.size(), e.getMessage());
+            retry(batch, e);
+        }
+        batch.clear();
+    }
+
+    // Writes the part of the batch the failed attempt didn't store, backing off between attempts
+    private void retry(List<Message> batch, RuntimeException failure) {
+        long backoff = retryBackoffMs;
+        int attempts = running ? maxRetries : 1; // Shutdown doesn't wait out an outage
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            try {
+                if (running) {
+                    Thread.sleep(backoff);
+                    backoff *= 2;
+                }
+                long start = System.nanoTime();
+                messageRepository.insertMissing(batch);
+                chatMetrics.persistedBatch(batch.size(), System.nanoTime() - start);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        chatMetrics.persistenceFailed(batch.size());
+        log.error("Failed to persist batch of {} messages, writing it to {}", batch.size(), deadLetterPath, failure);
+        deadLetter(batch);
+    }
+
+    private void deadLetter(List<Message> batch) {
+        try {
+            Path path = Path.of(deadLetterPath);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Message message : batch) {
+                    out.write(objectMapper.writeValueAsBytes(message));
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not write {} undelivered messages to {}: {}", batch.size(), deadLetterPath, batch, e);
+        }
+    }
+
+    // Stops accepting new work and flushes every pending batch before the context closes
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        gate.writeLock().lock();
+        try {
+            running = false; // The writer exits once the queue is empty; later enqueues write inline
+        } finally {
+            gate.writeLock().unlock();
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        List<Message> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        flush(rest);
+    }
+}
@@ -0,0 +1,178 @@
+// src/main/java/com/example/gardenchat/service/MessageRetentionService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.config.SchedulingConfig;
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.MessageBucket;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Ages out message buckets (chat.storage.mode=bucketed) once their window ended more than retention-days ago.
+// ttl: MongoDB's TTL monitor deletes them, driven by an index on the window end
+// archive: a scheduled job moves them to message_archive, with the messages GZIP-compressed as one BSON blob
+@Service
+public class MessageRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageRetentionService.class);
+
+    static final String BUCKETS_COLLECTION = "message_buckets";
+    static final String ARCHIVE_COLLECTION = "message_archive";
+    static final String COMPRESSED_FIELD = "messagesGzip";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Value("${chat.storage.mode:flat}")
+    private String storageMode;
+
+    @Value("${chat.storage.retention.mode:none}")
+    private String retentionMode; // none, ttl or archive
+
+    @Value("${chat.storage.retention.days:90}")
+    private int retentionDays; // Age of a bucket's window end before it is deleted or archived
+
+    @Value("${chat.storage.archive.compress:true}")
+    private boolean compress; // GZIP the archived messages; typically several times smaller than plain BSON
+
+    @Value("${chat.storage.archive.batch-size:100}")
+    private int batchSize; // Buckets moved per round trip
+
+    @Autowired
+    @Qualifier(SchedulingConfig.MAINTENANCE_SCHEDULER)
+    private TaskExecutor maintenanceExecutor;
+
+    // The retention index is created off the main thread, like the other indexes, so startup never waits on MongoDB
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled("ttl")) {
+            maintenanceExecutor.execute(this::ensureTtlIndex);
+        } else if (enabled("archive")) {
+            maintenanceExecutor.execute(this::ensureArchiveIndex);
+        }
+    }
+
+    void ensureTtlIndex() {
+        try {
+            mongoTemplate.indexOps(MessageBucket.class).ensureIndex(new Index().on("end", Sort.Direction.ASC)
+                    .named("end_ttl").expire(Duration.ofDays(retentionDays)));
+        } catch (DataAccessException e) {
+            // Also raised when the index exists with another expiry; drop end_ttl to apply a new retention
+            log.warn("Could not ensure the message bucket TTL index: {}", e.getMessage());
+        }
+    }
+
+    // Serves the archive job's end < cutoff query, which would otherwise scan every bucket on each run
+    void ensureArchiveIndex() {
+        try {
+            mongoTemplate.indexOps(MessageBucket.class).ensureIndex(new Index().on("end", Sort.Direction.ASC).named("end"));
+        } catch (DataAccessException e) {
+            // Also raised while end_ttl from an earlier ttl retention exists; drop it when switching to archive
+            log.warn("Could not ensure the message bucket end index: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.storage.archive.interval-ms:3600000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    public void scheduleArchive() {
+        if (enabled("archive")) {
+            archive();
+        }
+    }
+
+    // Moves every expired bucket to the archive; returns how many were moved
+    int archive() {
+        Query expired = Query.query(Criteria.where("end").lt(LocalDateTime.now().minusDays(retentionDays)))
+                .limit(batchSize);
+        int moved = 0;
+        try {
+            List<Document> buckets;
+            do {
+                buckets = mongoTemplate.find(expired, Document.class, BUCKETS_COLLECTION);
+                for (Document bucket : buckets) {
+                    // Saved by id, so a bucket copied before a failed delete is simply overwritten next time
+                    mongoTemplate.save(compress ? compress(bucket) : bucket, ARCHIVE_COLLECTION);
+                }
+                if (!buckets.isEmpty()) {
+                    List<Object> ids = buckets.stream().map(b -> b.get("_id")).toList();
+                    mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), BUCKETS_COLLECTION);
+                    moved += buckets.size();
+                    chatMetrics.archived(buckets.size());
+                }
+            } while (buckets.size() == batchSize);
+        } catch (DataAccessException e) {
+            log.warn("Could not archive message buckets: {}", e.getMessage());
+        }
+        if (moved > 0) {
+            log.info("Archived {} message buckets", moved);
+        }
+        return moved;
+    }
+
+    private boolean enabled(String mode) {
+        return "bucketed".equals(storageMode) && mode.equals(retentionMode);
+    }
+
+    // The bucket with its messages array replaced by the GZIP-compressed BSON of {messages: [...]}
+    static Document compress(Document bucket) {
+        Document archived = new Document(bucket);
+        Object messages = archived.remove("messages");
+        RawBsonDocument raw = new RawBsonDocument(new Document("messages", messages), new DocumentCodec());
+        ByteBuffer bson = raw.getByteBuffer().asNIO();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bson.remaining() / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            byte[] chunk = new byte[bson.remaining()];
+            bson.get(chunk);
+            gzip.write(chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        archived.put(COMPRESSED_FIELD, new Binary(bytes.toByteArray()));
+        return archived;
+    }
+
+    // Reverses compress(), for restores and ad-hoc reads of the archive
+    @SuppressWarnings("unchecked")
+    public static List<Document> decompress(Document archived) {
+        Object compressed = archived.get(COMPRESSED_FIELD);
+        if (compressed == null) {
+            return (List<Document>) archived.get("messages");
+        }
+        byte[] data = compressed instanceof Binary binary ? binary.getData() : (byte[]) compressed;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new RawBsonDocument(gzip.readAllBytes()).decode(new DocumentCodec()).getList("messages", Document.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
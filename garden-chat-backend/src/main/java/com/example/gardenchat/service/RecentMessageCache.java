@@ -0,0 +1,287 @@
+// src/main/java/com/example/gardenchat/service/RecentMessageCache.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message; // Import the Message entity/model
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps the last N messages of each active group in memory so room joins don't hit MongoDB.
+// Cold groups are dropped after an idle period, and least-recently-used groups go first when
+// the total number of cached messages exceeds the budget.
+@Component
+public class RecentMessageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RecentMessageCache.class);
+
+    // Orders messages newest first, the same order history pages use
+    static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getTimestamp, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Message::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // Oldest first by group sequence, the order replays use
+    static final Comparator<Message> BY_SEQUENCE = Comparator.comparing(Message::getSequence);
+
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicInteger totalMessages = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long lastSweepMillis = System.currentTimeMillis();
+
+    @Value("${chat.cache.enabled:true}")
+    private boolean enabled; // Only sees local broadcasts, so it is turned off when several nodes serve the same rooms
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.cache.messages-per-group:200}")
+    private int messagesPerGroup; // Ring size per group; below chat.history.max-page-size, larger pages always miss
+
+    @Value("${chat.cache.max-total-messages:100000}")
+    private int maxTotalMessages; // Memory budget across all groups
+
+    @Value("${chat.cache.idle-ttl-ms:600000}")
+    private long idleTtlMillis; // Groups untouched for this long are evicted
+
+    // Relay and bridged modes deliver other nodes' messages without passing through add(), so rings would serve
+    // pages with holes in them
+    @PostConstruct
+    void init() {
+        if (enabled && !"simple".equals(brokerMode)) {
+            log.warn("chat.cache.enabled=true with chat.broker.mode={}: disabling the recent message cache, which only "
+                    + "sees this node's broadcasts", brokerMode);
+            enabled = false;
+        }
+    }
+
+    // Records a message that was just broadcast to its group
+    public void add(Message message) {
+        if (!enabled) {
+            return;
+        }
+        Ring ring = rings.computeIfAbsent(message.getGroup(), g -> new Ring());
+        totalMessages.addAndGet(ring.addNewest(message, messagesPerGroup));
+        maintain();
+    }
+
+    // Newest-first page of up to limit messages, or null when the cache can't answer it on its own
+    public List<Message> newest(String group, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        Ring ring = rings.get(group);
+        List<Message> page = ring == null ? null : ring.newest(limit);
+        if (page == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return page;
+    }
+
+    // Fills the cache from a newest-first database page (complete means it holds the group's entire history) and
+    // returns the newest limit messages, which may include broadcasts the write-behind queue hasn't flushed yet
+    public List<Message> seed(String group, List<Message> newestFirst, boolean complete, int limit) {
+        if (!enabled) {
+            return newestFirst;
+        }
+        // Empty rings cost nothing against the budget, so reads of groups with no history (any name a client picks)
+        // must not create them; a ring broadcasts already started is still topped up
+        Ring ring = newestFirst.isEmpty() ? rings.get(group) : rings.computeIfAbsent(group, g -> new Ring());
+        if (ring == null) {
+            return newestFirst;
+        }
+        totalMessages.addAndGet(ring.addOlder(newestFirst, complete, messagesPerGroup));
+        maintain();
+        List<Message> page = ring.newest(limit);
+        return page == null ? newestFirst : page;
+    }
+
+    // Messages after the given sequence, oldest first, or null when older ones may be missing from the cache
+    public List<Message> since(String group, long sequence, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        Ring ring = rings.get(group);
+        List<Message> page = ring == null ? null : ring.since(sequence, limit, true);
+        if (page == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return page;
+    }
+
+    // Cached messages after the given sequence, oldest first, whether or not the cache covers the whole gap;
+    // used to top up a database page with broadcasts the write-behind queue hasn't flushed yet
+    public List<Message> cachedSince(String group, long sequence, int limit) {
+        Ring ring = enabled ? rings.get(group) : null;
+        return ring == null ? List.of() : ring.since(sequence, limit, false);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        return totalMessages.get();
+    }
+
+    public int groups() {
+        return rings.size();
+    }
+
+    // Applies the idle TTL periodically and the memory budget whenever it is exceeded
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweepMillis > Math.min(idleTtlMillis, 60_000)) {
+            lastSweepMillis = now;
+            rings.entrySet().removeIf(e -> now - e.getValue().lastAccess > idleTtlMillis && evict(e.getValue()));
+        }
+        if (totalMessages.get() > maxTotalMessages) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    // Drops least recently used groups until the cache is back under 90% of its budget
+    private synchronized void evictLeastRecentlyUsed() {
+        if (totalMessages.get() <= maxTotalMessages) {
+            return;
+        }
+        List<Map.Entry<String, Ring>> entries = new ArrayList<>(rings.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        Iterator<Map.Entry<String, Ring>> it = entries.iterator();
+        long target = maxTotalMessages * 9L / 10;
+        while (totalMessages.get() > target && it.hasNext()) {
+            Map.Entry<String, Ring> e = it.next();
+            if (rings.remove(e.getKey(), e.getValue())) {
+                evict(e.getValue());
+            }
+        }
+    }
+
+    private boolean evict(Ring ring) {
+        totalMessages.addAndGet(-ring.clear());
+        evictions.incrementAndGet();
+        return true;
+    }
+
+    // Bounded newest-first buffer for one group; the deque is a circular array, so adds and trims are O(1)
+    private static final class Ring {
+        private final ArrayDeque<Message> messages = new ArrayDeque<>();
+        private boolean complete; // True when the ring holds the group's whole history (nothing older exists)
+        private boolean evicted; // Set once removed from the map; late writers must not count against the budget
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        // Returns the change in the number of cached messages. Broadcasts run on several inbound threads, so a
+        // message can arrive after newer ones; it is inserted behind them to keep the ring newest first, which the
+        // cursor pages cut from it rely on. The few newer messages are popped and pushed back, so this stays O(1)
+        // for in-order arrivals.
+        synchronized int addNewest(Message message, int capacity) {
+            if (evicted) {
+                return 0;
+            }
+            lastAccess = System.currentTimeMillis();
+            ArrayDeque<Message> newer = null;
+            while (!messages.isEmpty() && NEWEST_FIRST.compare(messages.peekFirst(), message) < 0) {
+                if (newer == null) {
+                    newer = new ArrayDeque<>();
+                }
+                newer.push(messages.pollFirst());
+            }
+            messages.addFirst(message);
+            while (newer != null && !newer.isEmpty()) {
+                messages.addFirst(newer.pop());
+            }
+            if (messages.size() > capacity) {
+                messages.removeLast();
+                complete = false;
+                return 0;
+            }
+            return 1;
+        }
+
+        // Appends database messages older than anything cached; newer ones are already here via broadcasts
+        synchronized int addOlder(List<Message> newestFirst, boolean wholeHistory, int capacity) {
+            if (evicted) {
+                return 0;
+            }
+            lastAccess = System.currentTimeMillis();
+            int before = messages.size();
+            Message oldest = messages.peekLast();
+            boolean truncated = false;
+            for (Message m : newestFirst) {
+                if (oldest != null && NEWEST_FIRST.compare(m, oldest) <= 0) {
+                    continue;
+                }
+                if (messages.size() >= capacity) {
+                    truncated = true;
+                    break;
+                }
+                messages.addLast(m);
+            }
+            complete = wholeHistory && !truncated;
+            return messages.size() - before;
+        }
+
+        synchronized List<Message> newest(int limit) {
+            lastAccess = System.currentTimeMillis();
+            if (messages.size() < limit && !complete) {
+                return null;
+            }
+            List<Message> page = new ArrayList<>(Math.min(limit, messages.size()));
+            Iterator<Message> it = messages.iterator();
+            while (page.size() < limit && it.hasNext()) {
+                page.add(it.next());
+            }
+            return page;
+        }
+
+        // With requireCoverage, null unless the ring reaches back to the given sequence (or holds the whole history)
+        synchronized List<Message> since(long sequence, int limit, boolean requireCoverage) {
+            lastAccess = System.currentTimeMillis();
+            boolean covered = complete;
+            List<Message> newer = new ArrayList<>();
+            for (Message m : messages) {
+                if (m.getSequence() == null || m.getSequence() <= sequence) {
+                    covered = true;
+                } else {
+                    newer.add(m);
+                }
+            }
+            if (requireCoverage && !covered) {
+                return null;
+            }
+            newer.sort(BY_SEQUENCE);
+            return newer.size() > limit ? new ArrayList<>(newer.subList(0, limit)) : newer;
+        }
+
+        synchronized int clear() {
+            int n = messages.size();
+            messages.clear();
+            evicted = true;
+            return n;
+        }
+    }
+}
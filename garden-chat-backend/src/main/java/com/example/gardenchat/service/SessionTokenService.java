@@ -0,0 +1,105 @@
+// src/main/java/com/example/gardenchat/service/SessionTokenService.java
+package com.example.gardenchat.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Signed login tokens: "<base64url username>.<expiry epoch seconds>.<base64url HMAC-SHA256>". Issued at login and
+// presented as "Authorization: Bearer <token>" on STOMP CONNECT, where they become the session's Principal, and on
+// REST sends, where they name the sender; nothing is stored server-side.
+@Service
+public class SessionTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokenService.class);
+
+    public static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Value("${chat.auth.token-secret:}")
+    private String secret; // Shared by every node; when empty a random per-process key is used
+
+    @Value("${chat.auth.require-token-secret:false}")
+    private boolean requireSecret; // Refuse to start without a shared secret (prod profile)
+
+    @Value("${chat.auth.token-ttl-ms:86400000}")
+    private long ttlMillis; // How long a token stays valid after login
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    void init() {
+        byte[] material;
+        if (secret.isBlank()) {
+            if (requireSecret) {
+                // A per-process key would log every client out on each restart and make tokens unusable on other nodes
+                throw new IllegalStateException("chat.auth.token-secret must be set when chat.auth.require-token-secret=true");
+            }
+            material = new byte[32];
+            new SecureRandom().nextBytes(material);
+            log.info("chat.auth.token-secret is not set; login tokens are only valid on this node until it restarts");
+        } else {
+            material = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(material, SIGNATURE_ALGORITHM);
+    }
+
+    public String issue(String username) {
+        long expires = (System.currentTimeMillis() + ttlMillis) / 1000;
+        String payload = ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + "." + expires;
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    // The username from an "Authorization: Bearer <token>" header, or null when there is no bearer token or it is not valid
+    public String verifyBearer(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return verify(authorization.substring(BEARER_PREFIX.length()));
+    }
+
+    // The username the token was issued to, or null when it is malformed, forged or expired
+    public String verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int signatureStart = token.lastIndexOf('.');
+        int expiryStart = signatureStart > 0 ? token.lastIndexOf('.', signatureStart - 1) : -1;
+        if (expiryStart <= 0) {
+            return null;
+        }
+        String payload = token.substring(0, signatureStart);
+        try {
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(token.substring(signatureStart + 1)))
+                    || Long.parseLong(token.substring(expiryStart + 1, signatureStart)) * 1000 < System.currentTimeMillis()) {
+                return null;
+            }
+            return new String(DECODER.decode(token.substring(0, expiryStart)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) { // Bad Base64 or expiry
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+// src/main/java/com/example/gardenchat/service/UserDirectoryService.java
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.config.SchedulingConfig;
+import com.example.gardenchat.model.User; // Import the User model
+import com.example.gardenchat.model.UserPage;
+import com.example.gardenchat.model.UserSummary;
+import com.example.gardenchat.repository.UserRepository; // Import UserRepository for database access
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+// Paged, prefix-searchable user directory. Usernames are mirrored into a sorted in-memory index so type-ahead is a
+// range scan with no database round trip; until that index has loaded, pages come from MongoDB's username index.
+@Service
+public class UserDirectoryService extends AbstractMongoEventListener<User> {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    // Characters with a meaning in a regular expression, escaped so a prefix only ever matches literally
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.directory.in-memory:true}")
+    private boolean inMemory; // Mirror usernames in memory; turn off when the user base doesn't fit the heap
+
+    @Value("${chat.directory.default-page-size:50}")
+    private int defaultPageSize; // Page size used when the client doesn't ask for one
+
+    @Value("${chat.directory.max-page-size:200}")
+    private int maxPageSize; // Upper bound on the page size a client may request
+
+    private final NavigableMap<String, String> idsByUsername = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded; // True once every user existing at startup is in the index
+    private volatile ObjectId newestLoaded; // Highest user id read from MongoDB so far
+
+    // Users whose username starts with prefix (all users when blank), after the given username, in username order
+    public UserPage page(String prefix, String after, Integer limit) {
+        String from = prefix == null ? "" : prefix;
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<UserSummary> users;
+        if (inMemory && loaded) {
+            users = new ArrayList<>(size);
+            String start = after != null && after.compareTo(from) > 0 ? after : from;
+            boolean inclusive = after == null || after.compareTo(from) < 0;
+            for (Map.Entry<String, String> e : idsByUsername.tailMap(start, inclusive).entrySet()) {
+                if (users.size() == size || !e.getKey().startsWith(from)) {
+                    break;
+                }
+                users.add(new UserSummary(e.getValue(), e.getKey()));
+            }
+        } else {
+            users = userRepository.findSummaries("^" + escape(from), after == null ? "" : after,
+                    PageRequest.of(0, size, Sort.by("username")));
+        }
+        String next = users.size() == size ? users.get(users.size() - 1).getUsername() : null;
+        return new UserPage(users, next);
+    }
+
+    // Entity tag of a page, derived from its contents so any added user on the page changes it
+    public static String etag(UserPage page) {
+        StringBuilder content = new StringBuilder();
+        for (UserSummary user : page.getUsers()) {
+            content.append(user.getId()).append('\u0000').append(user.getUsername()).append('\u0000');
+        }
+        return '"' + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    public int size() {
+        return idsByUsername.size();
+    }
+
+    // Registrations on this node show up immediately
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        User user = event.getSource();
+        if (inMemory && user.getUsername() != null && user.getId() != null) {
+            idsByUsername.put(user.getUsername(), user.getId());
+        }
+    }
+
+    // Loads the directory on the first run, then picks up users registered on other nodes. Runs on the maintenance
+    // scheduler because MongoDB may be slow or unreachable.
+    @Scheduled(fixedDelayString = "${chat.directory.refresh-ms:60000}", scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    public void refresh() {
+        if (!inMemory) {
+            return;
+        }
+        // ObjectIds grow with creation time, so anything newer than the last one read is a new registration
+        Query query = newestLoaded == null ? new Query() : Query.query(Criteria.where("_id").gt(newestLoaded));
+        query.fields().include("username");
+        try (Stream<UserSummary> users = mongoTemplate.query(User.class).as(UserSummary.class).matching(query).stream()) {
+            users.forEach(user -> {
+                idsByUsername.put(user.getUsername(), user.getId());
+                if (ObjectId.isValid(user.getId())) {
+                    ObjectId id = new ObjectId(user.getId());
+                    if (newestLoaded == null || id.compareTo(newestLoaded) > 0) {
+                        newestLoaded = id;
+                    }
+                }
+            });
+            if (!loaded) {
+                loaded = true;
+                log.info("User directory loaded with {} users", idsByUsername.size());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not refresh user directory: {}", e.getMessage());
+        }
+    }
+
+    private static String escape(String literal) {
+        StringBuilder regex = new StringBuilder(literal.length());
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,50 @@
+// src/main/java/com/example/gardenchat/websocket/BroadcastTimingInterceptor.java
+package com.example.gardenchat.websocket;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+// Client inbound channel interceptor timing chat frames end to end: stamped when the frame arrives from the
+// socket, recorded once the @MessageMapping handler and its @SendTo fan-out into the broker have finished
+public class BroadcastTimingInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String RECEIVED_AT_HEADER = "gardenchatReceivedAt";
+
+    private final ChatMetrics chatMetrics;
+    private final String destinationPrefix;
+
+    public BroadcastTimingInterceptor(ChatMetrics chatMetrics, String destinationPrefix) {
+        this.chatMetrics = chatMetrics;
+        this.destinationPrefix = destinationPrefix;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(destinationPrefix)) {
+            return message;
+        }
+        long now = System.nanoTime();
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, MessageHeaderAccessor.class);
+        if (accessor != null && accessor.isMutable()) {
+            accessor.setHeader(RECEIVED_AT_HEADER, now);
+            return message;
+        }
+        return MessageBuilder.fromMessage(message).setHeader(RECEIVED_AT_HEADER, now).build();
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (handler instanceof SimpAnnotationMethodMessageHandler
+                && message.getHeaders().get(RECEIVED_AT_HEADER) instanceof Long receivedAt) {
+            chatMetrics.broadcastLatency(System.nanoTime() - receivedAt);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+// src/main/java/com/example/gardenchat/websocket/CompressionUpgradeStrategy.java
+package com.example.gardenchat.websocket;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeFailureException;
+import org.springframework.web.socket.server.RequestUpgradeStrategy;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+// Decides whether the permessage-deflate extension is negotiated during the WebSocket handshake. Compression is
+// per connection, so it costs CPU for every subscriber of a broadcast; worth it for large payloads on slow links.
+// Tomcat accepts the extension whenever the client offers it, so turning it off hides the offer from the container.
+public class CompressionUpgradeStrategy implements RequestUpgradeStrategy {
+
+    static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    private final RequestUpgradeStrategy delegate;
+    private final boolean deflate;
+
+    public CompressionUpgradeStrategy(RequestUpgradeStrategy delegate, boolean deflate) {
+        this.delegate = delegate;
+        this.deflate = deflate;
+    }
+
+    @Override
+    public String[] getSupportedVersions() {
+        return delegate.getSupportedVersions();
+    }
+
+    @Override
+    public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+        return deflate ? delegate.getSupportedExtensions(request) : List.of();
+    }
+
+    @Override
+    public void upgrade(ServerHttpRequest request, ServerHttpResponse response, String selectedProtocol,
+                        List<WebSocketExtension> selectedExtensions, Principal user, WebSocketHandler wsHandler,
+                        Map<String, Object> attributes) throws HandshakeFailureException {
+        if (!deflate && request instanceof ServletServerHttpRequest servletRequest) {
+            request = new ServletServerHttpRequest(new WithoutExtensions(servletRequest.getServletRequest()));
+        }
+        delegate.upgrade(request, response, selectedProtocol, selectedExtensions, user, wsHandler, attributes);
+    }
+
+    // The handshake request minus its extension offers; the chat protocol doesn't use any other extension
+    private static final class WithoutExtensions extends HttpServletRequestWrapper {
+
+        WithoutExtensions(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(EXTENSIONS_HEADER::equalsIgnoreCase);
+            return Collections.enumeration(names);
+        }
+    }
+}
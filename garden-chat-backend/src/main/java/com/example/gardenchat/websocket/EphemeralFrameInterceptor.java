@@ -0,0 +1,74 @@
+// src/main/java/com/example/gardenchat/websocket/EphemeralFrameInterceptor.java
+package com.example.gardenchat.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+import java.util.List;
+
+// Client outbound channel interceptor: counts each session's backlog and drops ephemeral frames
+// (typing indicators) for sessions under pressure, so chat messages aren't stuck behind them
+public class EphemeralFrameInterceptor implements ExecutorChannelInterceptor {
+
+    private final SessionPressureTracker tracker;
+    private final List<String> ephemeralPrefixes;
+
+    public EphemeralFrameInterceptor(SessionPressureTracker tracker, List<String> ephemeralPrefixes) {
+        this.tracker = tracker;
+        this.ephemeralPrefixes = ephemeralPrefixes;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        if (isEphemeral(message) && tracker.isUnderPressure(sessionId)) {
+            tracker.frameDropped();
+            return null; // Not sent; typists are announced again while typing and expire on the client
+        }
+        tracker.frameQueued(sessionId);
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        // A frame that never reached the executor won't be handled, so release it here
+        if (!sent || ex != null) {
+            release(message);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message);
+    }
+
+    private void release(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            tracker.frameHandled(sessionId);
+        }
+    }
+
+    private boolean isEphemeral(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return false;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : ephemeralPrefixes) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,57 @@
+// src/main/java/com/example/gardenchat/websocket/PressureTrackingDecoratorFactory.java
+package com.example.gardenchat.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+// Wraps each session so the time spent in socket writes is visible to SessionPressureTracker
+public class PressureTrackingDecoratorFactory implements WebSocketHandlerDecoratorFactory {
+
+    private final SessionPressureTracker tracker;
+
+    public PressureTrackingDecoratorFactory(SessionPressureTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                tracker.sessionOpened(session.getId());
+                super.afterConnectionEstablished(new TimedSession(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                tracker.sessionClosed(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    // Records when a write starts and ends; the broker's per-session send buffer sits above this decorator
+    private final class TimedSession extends WebSocketSessionDecorator {
+
+        TimedSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            tracker.sendStarted(getId());
+            try {
+                super.sendMessage(message);
+            } finally {
+                tracker.sendFinished(getId());
+            }
+        }
+    }
+}
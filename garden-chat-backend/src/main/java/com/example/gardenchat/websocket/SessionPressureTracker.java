@@ -0,0 +1,86 @@
+// src/main/java/com/example/gardenchat/websocket/SessionPressureTracker.java
+package com.example.gardenchat.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-session view of outbound back-pressure: frames waiting in the outbound channel and how long the
+// socket write in progress has been running. Used to shed ephemeral frames before they queue behind a slow client.
+@Component
+public class SessionPressureTracker {
+
+    private final Map<String, State> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    @Value("${chat.outbound.pressure.max-queued-frames:32}")
+    private int maxQueuedFrames; // Outbound backlog above which a session counts as under pressure
+
+    @Value("${chat.outbound.pressure.slow-send-ms:200}")
+    private long slowSendMillis; // A single socket write running longer than this means the client is slow
+
+    public boolean isUnderPressure(String sessionId) {
+        State state = sessionId == null ? null : sessions.get(sessionId);
+        if (state == null) {
+            return false;
+        }
+        long started = state.sendStartedNanos;
+        return state.queued.get() > maxQueuedFrames
+                || (started != 0 && System.nanoTime() - started > TimeUnit.MILLISECONDS.toNanos(slowSendMillis));
+    }
+
+    void frameQueued(String sessionId) {
+        State state = sessions.get(sessionId);
+        if (state != null) {
+            state.queued.incrementAndGet();
+        }
+    }
+
+    void frameHandled(String sessionId) {
+        State state = sessions.get(sessionId);
+        if (state != null) {
+            state.queued.decrementAndGet();
+        }
+    }
+
+    void sendStarted(String sessionId) {
+        State state = sessions.get(sessionId);
+        if (state != null) {
+            state.sendStartedNanos = System.nanoTime();
+        }
+    }
+
+    void sendFinished(String sessionId) {
+        State state = sessions.get(sessionId);
+        if (state != null) {
+            state.sendStartedNanos = 0;
+        }
+    }
+
+    void frameDropped() {
+        droppedFrames.incrementAndGet();
+    }
+
+    void sessionOpened(String sessionId) {
+        sessions.put(sessionId, new State());
+    }
+
+    void sessionClosed(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    // Ephemeral frames shed because their session was under pressure
+    public long droppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private static final class State {
+        private final AtomicInteger queued = new AtomicInteger();
+        private volatile long sendStartedNanos; // 0 when no write is in progress
+    }
+}
@@ -0,0 +1,47 @@
+// src/main/java/com/example/gardenchat/websocket/StompAuthenticationInterceptor.java
+package com.example.gardenchat.websocket;
+
+import com.example.gardenchat.service.SessionTokenService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.List;
+
+// Client inbound channel interceptor: a CONNECT frame carrying "Authorization: Bearer <login token>" makes the
+// token's user the session's Principal, which /user/ destinations route by. Connections without the header stay
+// anonymous and can still use the rooms. A token that is expired, forged or signed with another secret is refused
+// with a "401 Unauthorized" ERROR frame, so the client logs in again instead of connecting without its queues.
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    public static final String UNAUTHORIZED = "401 Unauthorized";
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+
+    private final SessionTokenService sessionTokenService;
+
+    public StompAuthenticationInterceptor(SessionTokenService sessionTokenService) {
+        this.sessionTokenService = sessionTokenService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String header = accessor.getFirstNativeHeader(AUTHORIZATION_HEADER);
+            if (header != null) {
+                String username = sessionTokenService.verifyBearer(header);
+                if (username == null) {
+                    throw new MessageDeliveryException(message, UNAUTHORIZED); // Becomes the ERROR frame's message header
+                }
+                accessor.setUser(UsernamePasswordAuthenticationToken.authenticated(username, null, List.of()));
+            }
+        }
+        return message;
+    }
+}
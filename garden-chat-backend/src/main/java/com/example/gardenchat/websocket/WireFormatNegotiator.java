@@ -0,0 +1,207 @@
+// src/main/java/com/example/gardenchat/websocket/WireFormatNegotiator.java
+package com.example.gardenchat.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Lets a STOMP connection ask for CBOR payloads instead of JSON with "x-garden-encoding: cbor" on its CONNECT frame.
+// The broker still fans out one JSON payload per broadcast; on the outbound channel each payload is re-encoded once
+// and the CBOR bytes are shared by every CBOR subscriber. Chat messages carry epoch-millisecond timestamps in CBOR.
+@Component
+public class WireFormatNegotiator {
+
+    public static final String ENCODING_HEADER = "x-garden-encoding";
+    public static final String CBOR = "cbor";
+    public static final MimeType CBOR_MIME_TYPE = new MimeType("application", "cbor");
+
+    private final ObjectMapper cborMapper = cborMapper();
+
+    // Open sessions, and whether their transport can carry binary frames (SockJS can't)
+    private final Map<String, Boolean> binaryCapable = new ConcurrentHashMap<>();
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    // JSON payload -> CBOR payload, keyed by array identity; entries go once no frame holds the JSON payload any more
+    private final Map<byte[], byte[]> encoded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Autowired
+    private ObjectMapper objectMapper; // Spring's mapper, which wrote the JSON payloads
+
+    @Value("${chat.wire.cbor-enabled:true}")
+    private boolean cborEnabled; // Honour CBOR requests; when false every connection gets JSON
+
+    @Value("${chat.wire.message-prefixes:/topic/messages/}")
+    private List<String> messagePrefixes; // Destinations whose payload is a chat Message (re-encoded with epoch timestamps)
+
+    // Decodes CBOR SEND frames (content-type application/cbor); only used when a frame says so
+    public MessageConverter messageConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(CBOR_MIME_TYPE);
+        converter.setObjectMapper(cborMapper);
+        converter.setStrictContentTypeMatch(true); // Never chosen for outbound conversion, which stays JSON
+        return converter;
+    }
+
+    // Records which sessions are native WebSockets, the only transport that sends binary frames
+    public WebSocketHandlerDecoratorFactory sessionTracker() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                binaryCapable.put(session.getId(), !(session instanceof SockJsSession));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                binaryCapable.remove(session.getId());
+                cborSessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    // Client inbound channel: records the encoding a session asks for on CONNECT
+    public ChannelInterceptor inbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.CONNECT) {
+                    negotiate(message);
+                }
+                return message;
+            }
+        };
+    }
+
+    // Client outbound channel: swaps JSON payloads for CBOR on sessions that negotiated it
+    public ChannelInterceptor outbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                        && sessionId != null && cborSessions.contains(sessionId)
+                        && message.getPayload() instanceof byte[] json && isJson(message)) {
+                    return toCbor(message, json);
+                }
+                return message;
+            }
+        };
+    }
+
+    private void negotiate(Message<?> message) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (cborEnabled && sessionId != null && CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(ENCODING_HEADER))
+                && Boolean.TRUE.equals(binaryCapable.get(sessionId))) {
+            cborSessions.add(sessionId);
+        }
+    }
+
+    private Message<?> toCbor(Message<?> message, byte[] json) {
+        byte[] cbor = encoded.get(json);
+        if (cbor == null) {
+            cbor = encode(json, SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            encoded.putIfAbsent(json, cbor);
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        // Spring only writes binary WebSocket frames for octet-stream payloads; the header names the real encoding
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(ENCODING_HEADER, CBOR);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    byte[] encode(byte[] json, String destination) {
+        try {
+            if (isChatMessage(destination)) {
+                return cborMapper.writeValueAsBytes(objectMapper.readValue(json, com.example.gardenchat.model.Message.class));
+            }
+            JsonNode tree = objectMapper.readTree(json);
+            return cborMapper.writeValueAsBytes(tree);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isChatMessage(String destination) {
+        if (destination != null) {
+            for (String prefix : messagePrefixes) {
+                if (destination.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isJson(Message<?> message) {
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, MessageHeaderAccessor.class);
+        MimeType contentType = accessor != null ? accessor.getContentType() : null;
+        return contentType != null && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType);
+    }
+
+    // CBOR mapper with the same modules as Spring's JSON mapper, except LocalDateTime is epoch milliseconds
+    static ObjectMapper cborMapper() {
+        return Jackson2ObjectMapperBuilder.cbor()
+                .serializerByType(LocalDateTime.class, new EpochMillisSerializer())
+                .deserializerByType(LocalDateTime.class, new EpochMillisDeserializer())
+                .build();
+    }
+
+    // Timestamps are server-local LocalDateTime values, so the server's zone turns them into instants
+    private static final class EpochMillisSerializer extends JsonSerializer<LocalDateTime> {
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private static final class EpochMillisDeserializer extends JsonDeserializer<LocalDateTime> {
+        @Override
+        public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return LocalDateTime.parse(p.getText()); // ISO text, as in JSON
+            }
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(p.getLongValue()), ZoneId.systemDefault());
+        }
+    }
+}
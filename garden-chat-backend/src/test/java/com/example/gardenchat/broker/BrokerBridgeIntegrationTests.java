@@ -0,0 +1,127 @@
+package com.example.gardenchat.broker;
+
+import com.example.gardenchat.GardenChatBackendApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Runs two application contexts joined by the in-process bridge and checks broadcasts and user destinations sent on
+// one reach sessions on the other
+class BrokerBridgeIntegrationTests {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @AfterEach
+    void tearDown() {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+    }
+
+    @Test
+    void topicBroadcastReachesSubscribersOnOtherNode() throws InterruptedException {
+        String cluster = "it-" + UUID.randomUUID();
+        nodeA = startNode(cluster);
+        nodeB = startNode(cluster);
+        BlockingQueue<Message<?>> received = outbound(nodeB);
+        subscribe(nodeB, "session-b", null, "/topic/messages/garden");
+
+        nodeA.getBean("brokerMessagingTemplate", SimpMessagingTemplate.class)
+                .convertAndSend("/topic/messages/garden", "hello from A");
+
+        Message<?> message = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("hello from A", new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        assertEquals("session-b", SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+    }
+
+    @Test
+    void userDestinationReachesTheUserOnOtherNode() throws InterruptedException {
+        String cluster = "it-" + UUID.randomUUID();
+        nodeA = startNode(cluster);
+        nodeB = startNode(cluster);
+        BlockingQueue<Message<?>> receivedA = outbound(nodeA);
+        BlockingQueue<Message<?>> receivedB = outbound(nodeB);
+        // bob is connected to node B only, subscribed to /user/queue/messages as the frontend does
+        subscribe(nodeB, "session-bob", "bob", "/queue/messages-usersession-bob");
+
+        nodeA.getBean("brokerMessagingTemplate", SimpMessagingTemplate.class)
+                .convertAndSendToUser("bob", "/queue/messages", "dm from A");
+
+        Message<?> message = receivedB.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("dm from A", new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        assertEquals("session-bob", SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        assertNull(receivedB.poll(200, TimeUnit.MILLISECONDS)); // Delivered once
+        assertNull(receivedA.poll(0, TimeUnit.MILLISECONDS));
+    }
+
+    // MESSAGE frames the node sends to its clients
+    private static BlockingQueue<Message<?>> outbound(ConfigurableApplicationContext node) {
+        BlockingQueue<Message<?>> received = new LinkedBlockingQueue<>();
+        node.getBean("clientOutboundChannel", ExecutorSubscribableChannel.class).addInterceptor(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    received.add(message);
+                }
+                return message;
+            }
+        });
+        return received;
+    }
+
+    // Connects a session (as the user, when given) and subscribes it directly at the node's simple broker
+    private static void subscribe(ConfigurableApplicationContext node, String sessionId, String user, String destination) {
+        MessageHandler broker = node.getBean("simpleBrokerMessageHandler", MessageHandler.class);
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        connect.setSessionId(sessionId);
+        Principal principal = user == null ? null : () -> user;
+        connect.setUser(principal);
+        Message<byte[]> connectMessage = MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders());
+        broker.handleMessage(connectMessage);
+        if (principal != null) {
+            node.publishEvent(new SessionConnectedEvent(BrokerBridgeIntegrationTests.class, connectMessage, principal));
+        }
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId(sessionId);
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+    }
+
+    private static ConfigurableApplicationContext startNode(String cluster) {
+        return new SpringApplicationBuilder(GardenChatBackendApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--chat.broker.mode=bridged",
+                        "--chat.broker.bridge.cluster-name=" + cluster);
+    }
+}
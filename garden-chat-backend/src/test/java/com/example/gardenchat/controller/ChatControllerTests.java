@@ -0,0 +1,142 @@
+package com.example.gardenchat.controller;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.repository.MessageRepository;
+import com.example.gardenchat.service.DirectMessageService;
+import com.example.gardenchat.service.MessageExportService;
+import com.example.gardenchat.service.SessionTokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ChatControllerTests {
+
+    private MessageRepository messageRepository;
+    private DirectMessageService directMessageService;
+    private SessionTokenService tokens;
+    private ObjectMapper objectMapper;
+    private ChatController controller;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        directMessageService = mock(DirectMessageService.class);
+        tokens = new SessionTokenService();
+        ReflectionTestUtils.setField(tokens, "secret", "shared");
+        ReflectionTestUtils.setField(tokens, "ttlMillis", 60_000L);
+        ReflectionTestUtils.invokeMethod(tokens, "init");
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        MessageExportService exports = new MessageExportService();
+        ReflectionTestUtils.setField(exports, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(exports, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(exports, "cursorBatchSize", 1000);
+        controller = new ChatController();
+        ReflectionTestUtils.setField(controller, "messageExportService", exports);
+        ReflectionTestUtils.setField(controller, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(controller, "directMessageService", directMessageService);
+        ReflectionTestUtils.setField(controller, "sessionTokenService", tokens);
+    }
+
+    private static Message directMessage(String sender) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver("bob");
+        message.setContent("hi");
+        return message;
+    }
+
+    @Test
+    void restSendsTakeTheSenderFromTheLoginToken() {
+        ResponseEntity<Message> response = controller.sendMessage("Bearer " + tokens.issue("alice"), directMessage("mallory"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("alice", response.getBody().getSender());
+        verify(directMessageService).deliver(argThat(message -> "alice".equals(message.getSender())));
+    }
+
+    @Test
+    void restSendsWithoutAValidTokenAreRejected() {
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.sendMessage(null, directMessage("alice")).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.sendMessage("Bearer forged", directMessage("alice")).getStatusCode());
+
+        verify(messageRepository, never()).save(any(Message.class));
+        verifyNoInteractions(directMessageService);
+    }
+
+    @Test
+    void exportsStreamTheRequestedRangeAsNdjsonUnderAnEscapedFilename() throws IOException {
+        String group = "Gärten \"Süd\"";
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(1);
+        when(messageRepository.streamByGroup(group, from, to, 1000)).thenReturn(Stream.of(groupMessage("m1"), groupMessage("m2")));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.exportGroupMessages(group, from, to, false, response);
+
+        assertEquals("application/x-ndjson", response.getContentType());
+        assertEquals(group + ".ndjson", ContentDisposition.parse(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).getFilename());
+        assertEquals(List.of("m1", "m2"), contents(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void gzipExportsDecompressToTheSameLines() throws IOException {
+        when(messageRepository.streamByGroup(eq("garden"), any(), any(), anyInt()))
+                .thenReturn(Stream.of(groupMessage("m1"), groupMessage("m2")));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.exportGroupMessages("garden", null, null, true, response);
+
+        assertEquals("application/gzip", response.getContentType());
+        assertEquals("garden.ndjson.gz", ContentDisposition.parse(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).getFilename());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(List.of("m1", "m2"), contents(gzip.readAllBytes()));
+        }
+        verify(messageRepository).streamByGroup("garden", null, null, 1000);
+    }
+
+    private static Message groupMessage(String content) {
+        Message message = new Message();
+        message.setGroup("garden");
+        message.setSender("alice");
+        message.setContent(content);
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return message;
+    }
+
+    // One message per line, each parsed on its own
+    private List<String> contents(byte[] ndjson) throws IOException {
+        List<String> contents = new ArrayList<>();
+        for (String line : new String(ndjson, StandardCharsets.UTF_8).split("\n")) {
+            contents.add(objectMapper.readValue(line, Message.class).getContent());
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.gardenchat.presence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class PresenceServiceTests {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private PresenceService presence;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        presence = new PresenceService();
+        ReflectionTestUtils.setField(presence, "presenceStore", new InMemoryPresenceStore());
+        ReflectionTestUtils.setField(presence, "messagingTemplate", messagingTemplate);
+    }
+
+    private PresenceUpdate sent() {
+        ArgumentCaptor<Object> update = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq(PresenceService.PRESENCE_TOPIC), update.capture());
+        clearInvocations(messagingTemplate);
+        return (PresenceUpdate) update.getValue();
+    }
+
+    private void assertNothingSent() {
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    void sessionEventsDriveOnlineState() {
+        presence.onConnect(connect("s1", "alice"));
+        presence.onConnect(connect("s2", "alice")); // Second tab
+        assertEquals(Set.of("alice"), presence.snapshot());
+
+        presence.onDisconnect(disconnect("s1"));
+        assertEquals(Set.of("alice"), presence.snapshot()); // Still has a live session
+
+        presence.onDisconnect(disconnect("s2"));
+        presence.onDisconnect(disconnect("s2")); // Duplicate disconnect events are harmless
+        assertEquals(Set.of(), presence.snapshot());
+    }
+
+    @Test
+    void changesWithinATickAreCoalescedIntoOneDelta() {
+        presence.online("s1", "alice");
+        presence.online("s2", "bob");
+        presence.offline("s2"); // Joined and left within the tick: nothing to tell
+        presence.online("s3", "alice");
+        presence.flush();
+
+        assertEquals(new PresenceUpdate(List.of("alice"), List.of()), sent());
+        presence.flush();
+        assertNothingSent();
+
+        presence.offline("s1");
+        presence.flush();
+        assertNothingSent(); // alice still has s3
+
+        presence.offline("s3");
+        presence.flush();
+        assertEquals(new PresenceUpdate(List.of(), List.of("alice")), sent());
+    }
+
+    @Test
+    void deltasPendingAtSnapshotTimeApplyCleanlyOnTopOfIt() {
+        presence.online("s1", "alice");
+        presence.flush();
+        sent();
+
+        // A client subscribes between a change and the tick that publishes it: its snapshot already
+        // reflects the change, and the delta that follows must leave it unchanged
+        presence.online("s2", "bob");
+        presence.offline("s1");
+        Set<String> client = new HashSet<>(presence.snapshot());
+        assertEquals(Set.of("bob"), client);
+
+        presence.flush();
+        PresenceUpdate update = sent();
+        client.addAll(update.joined());
+        client.removeAll(update.left());
+        assertEquals(Set.of("bob"), client);
+        assertEquals(presence.snapshot(), client);
+    }
+
+    @Test
+    void connectsDoNotWaitForAFlushThatIsSending() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(messagingTemplate).convertAndSend(eq(PresenceService.PRESENCE_TOPIC), any(Object.class));
+
+        presence.online("s1", "alice");
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(presence::flush);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture.runAsync(() -> presence.online("s2", "bob")).get(1, TimeUnit.SECONDS);
+        assertEquals(Set.of("alice", "bob"), presence.snapshot());
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+    }
+
+    private static SessionConnectEvent connect(String sessionId, String login) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setLogin(login);
+        return new SessionConnectEvent(PresenceServiceTests.class, frame(accessor));
+    }
+
+    private static SessionDisconnectEvent disconnect(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        accessor.setSessionId(sessionId);
+        return new SessionDisconnectEvent(PresenceServiceTests.class, frame(accessor), sessionId, CloseStatus.NORMAL);
+    }
+
+    private static Message<byte[]> frame(StompHeaderAccessor accessor) {
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.gardenchat.presence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TypingIndicatorServiceTests {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private TypingIndicatorService typing;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        typing = new TypingIndicatorService();
+        ReflectionTestUtils.setField(typing, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(typing, "windowMillis", 200L);
+    }
+
+    private TypingUpdate sent() {
+        ArgumentCaptor<Object> update = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/typing/garden"), update.capture());
+        clearInvocations(messagingTemplate);
+        return (TypingUpdate) update.getValue();
+    }
+
+    @Test
+    void keystrokesAreCoalescedIntoOneStartedDeltaPerTick() {
+        typing.record("garden", "bob");
+        typing.record("garden", "alice");
+        typing.record("garden", "bob");
+        typing.flush();
+
+        assertEquals(new TypingUpdate("garden", List.of("alice", "bob"), List.of(), 200), sent());
+
+        typing.record("garden", "alice"); // Still typing, already announced
+        typing.flush();
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    void clearedTypistsAreReportedStoppedAndUnannouncedOnesNotAtAll() {
+        typing.record("garden", "alice");
+        typing.flush();
+        sent();
+
+        typing.clear("garden", "alice");
+        typing.record("garden", "bob");
+        typing.clear("garden", "bob"); // Sent a message before the tick ever announced them
+        typing.flush();
+
+        assertEquals(new TypingUpdate("garden", List.of(), List.of("alice"), 200), sent());
+        typing.flush();
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    @Test
+    void ongoingTypistsAreRenewedAndIdleOnesExpire() throws InterruptedException {
+        typing.record("garden", "alice");
+        typing.flush();
+        sent();
+
+        Thread.sleep(120); // Past half the window: alice is announced again so clients don't expire her
+        typing.record("garden", "alice");
+        typing.flush();
+        assertEquals(new TypingUpdate("garden", List.of("alice"), List.of(), 200), sent());
+
+        Thread.sleep(250); // No keystroke for a whole window
+        typing.flush();
+        assertEquals(new TypingUpdate("garden", List.of(), List.of("alice"), 200), sent());
+    }
+}
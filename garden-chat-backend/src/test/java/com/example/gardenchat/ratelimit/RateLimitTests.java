@@ -0,0 +1,165 @@
+package com.example.gardenchat.ratelimit;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.service.SessionTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RateLimitTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsAtRatePerKey() {
+        RateLimit limit = new RateLimit("session", 2, 3); // One token every 500 ms, three at most
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limit.tryAcquire("a", now));
+        }
+        long wait = limit.tryAcquire("a", now);
+        assertEquals(SECOND / 2, wait);
+        assertEquals(0, limit.tryAcquire("b", now)); // Other keys have their own bucket
+        assertEquals(0, limit.tryAcquire("a", now + wait));
+        assertTrue(limit.tryAcquire("a", now + wait) > 0);
+    }
+
+    @Test
+    void sweepDropsRefilledBucketsAndZeroRateIsUnlimited() {
+        RateLimit limit = new RateLimit("group", 10, 5);
+        long now = 1_000 * SECOND;
+        limit.tryAcquire("a", now);
+        limit.tryAcquire("b", now + SECOND);
+        limit.sweep(now + SECOND / 2);
+        assertEquals(1, limit.size());
+
+        RateLimit off = new RateLimit("user", 0, 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, off.tryAcquire("a", now));
+        }
+        assertEquals(0, off.size());
+    }
+
+    private static RateLimiter rateLimiter(int sessionBurst, int groupBurst) {
+        RateLimiter rateLimiter = new RateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "chatMetrics", mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "sessionRate", 0.001); // Effectively no refill during the test
+        ReflectionTestUtils.setField(rateLimiter, "sessionBurst", sessionBurst);
+        ReflectionTestUtils.setField(rateLimiter, "userRate", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "userBurst", sessionBurst);
+        ReflectionTestUtils.setField(rateLimiter, "groupRate", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "groupBurst", groupBurst);
+        ReflectionTestUtils.setField(rateLimiter, "httpRate", 0.001);
+        ReflectionTestUtils.setField(rateLimiter, "httpBurst", 1);
+        rateLimiter.init();
+        return rateLimiter;
+    }
+
+    @Test
+    void groupRejectionDoesNotSpendTheSendersTokens() {
+        RateLimiter rateLimiter = rateLimiter(2, 1);
+        assertNull(rateLimiter.checkChat("flooder", "mallory", "garden"));
+
+        // The room is out of tokens; alice's session and user buckets are left untouched
+        for (int i = 0; i < 5; i++) {
+            assertEquals(RateLimiter.GROUP_SCOPE, rateLimiter.checkChat("s1", "alice", "garden").scope());
+        }
+        assertNull(rateLimiter.checkChat("s1", "alice", "other"));
+        assertNull(rateLimiter.checkChat("s1", "alice", "third"));
+        assertEquals("session", rateLimiter.checkChat("s1", "alice", "fourth").scope());
+    }
+
+    private static Message<byte[]> send(String sessionId, String group) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setDestination("/app/chat/" + group);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+
+    @Test
+    void busyRoomDropsTheFrameWithANoticeInsteadOfClosingTheConnection() {
+        SimpMessageSendingOperations messagingTemplate = mock(SimpMessageSendingOperations.class);
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(rateLimiter(2, 1), List.of("/app/chat/"), messagingTemplate);
+        MessageChannel channel = mock(MessageChannel.class);
+
+        Message<byte[]> first = send("s1", "garden");
+        assertSame(first, interceptor.preSend(first, channel));
+
+        assertNull(interceptor.preSend(send("s2", "garden"), channel));
+        verify(messagingTemplate).convertAndSendToUser(eq("s2"), eq(RateLimitInterceptor.NOTICE_QUEUE),
+                argThat(rejection -> RateLimiter.GROUP_SCOPE.equals(((RateLimiter.Rejection) rejection).scope())),
+                argThat((MessageHeaders headers) -> "s2".equals(SimpMessageHeaderAccessor.getSessionId(headers))));
+    }
+
+    @Test
+    void sessionOverItsOwnLimitStillGetsAnErrorFrame() {
+        SimpMessageSendingOperations messagingTemplate = mock(SimpMessageSendingOperations.class);
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(rateLimiter(1, 100), List.of("/app/chat/"), messagingTemplate);
+        MessageChannel channel = mock(MessageChannel.class);
+
+        assertNotNull(interceptor.preSend(send("s1", "garden"), channel));
+        RateLimitExceededException limit = assertThrows(RateLimitExceededException.class,
+                () -> interceptor.preSend(send("s1", "garden"), channel));
+        assertEquals("session", limit.getScope());
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void restClientsAreKeyedByTheirTokenUserBeforeTheirAddress() throws Exception {
+        SessionTokenService tokens = new SessionTokenService();
+        ReflectionTestUtils.setField(tokens, "secret", "shared");
+        ReflectionTestUtils.setField(tokens, "ttlMillis", 60_000L);
+        ReflectionTestUtils.invokeMethod(tokens, "init");
+        RateLimitFilter filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "rateLimiter", rateLimiter(1, 1)); // One HTTP request per key
+        ReflectionTestUtils.setField(filter, "sessionTokenService", tokens);
+        ReflectionTestUtils.setField(filter, "paths", List.of("/api/messages"));
+
+        // Everyone arrives from the proxy's address; users with a token still get a bucket each
+        assertEquals(200, post(filter, "10.0.0.1", "Bearer " + tokens.issue("alice")));
+        assertEquals(200, post(filter, "10.0.0.1", "Bearer " + tokens.issue("bob")));
+        assertEquals(429, post(filter, "10.0.0.2", "Bearer " + tokens.issue("alice"))); // Same user, other address
+
+        // Without a valid token the address is the key, and a forged token doesn't buy a fresh bucket
+        assertEquals(200, post(filter, "10.0.0.1", null));
+        assertEquals(429, post(filter, "10.0.0.1", "Bearer forged"));
+        assertEquals(200, post(filter, "10.0.0.3", "Bearer forged"));
+    }
+
+    private static int post(RateLimitFilter filter, String address, String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/messages");
+        request.setRemoteAddr(address);
+        if (authorization != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
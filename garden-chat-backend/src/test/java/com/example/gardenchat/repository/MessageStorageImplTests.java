@@ -0,0 +1,192 @@
+package com.example.gardenchat.repository;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.MessageBucket;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageStorageImplTests {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void windowsAreAlignedToTheConfiguredLength() {
+        MessageStorageImpl storage = new MessageStorageImpl();
+        ReflectionTestUtils.setField(storage, "windowMinutes", 60);
+        assertEquals(NOON, storage.windowStart(NOON.plusMinutes(59).plusSeconds(59)));
+        ReflectionTestUtils.setField(storage, "windowMinutes", 15);
+        assertEquals(NOON.plusMinutes(45), storage.windowStart(NOON.plusMinutes(47)));
+    }
+
+    @Test
+    void pagesMergeBucketsOfTheSameWindowNewestFirst() {
+        // Two buckets share the noon window (the first one filled up), the third covers the hour before
+        List<MessageBucket> newestFirst = List.of(
+                bucket(NOON, message("c", NOON.plusMinutes(2), 3)),
+                bucket(NOON, message("a", NOON.plusMinutes(1), 1), message("d", NOON.plusMinutes(3), 4)),
+                bucket(NOON.minusHours(1), message("z", NOON.minusMinutes(5), 0)));
+        List<Message> page = MessageStorageImpl.page(
+                MessageStorageImpl.windows(newestFirst.iterator(), MessageStorageImpl.NEWEST_FIRST), m -> true, 3);
+        assertEquals(List.of("d", "c", "a"), ids(page));
+
+        List<Message> older = MessageStorageImpl.page(
+                MessageStorageImpl.windows(newestFirst.iterator(), MessageStorageImpl.NEWEST_FIRST),
+                m -> m.getTimestamp().isBefore(NOON.plusMinutes(2)), 3);
+        assertEquals(List.of("a", "z"), ids(older));
+    }
+
+    @Test
+    void replaysReturnTheMessagesAfterASequenceInOrder() {
+        List<MessageBucket> byLastSequence = List.of(
+                bucket(NOON, message("a", NOON, 1), message("b", NOON, 2), message("c", NOON, 3)),
+                bucket(NOON.plusHours(1), message("e", NOON.plusHours(1), 5), message("d", NOON.plusHours(1), 4)),
+                bucket(NOON.plusHours(2), message("f", NOON.plusHours(2), 6)));
+        assertEquals(List.of("c", "d", "e"), ids(MessageStorageImpl.afterSequence(byLastSequence.iterator(), 2, 3)));
+        assertEquals(List.of(), ids(MessageStorageImpl.afterSequence(byLastSequence.iterator(), 6, 3)));
+    }
+
+    @Test
+    void retriedBatchesOnlyAppendMessagesNotAlreadyInABucket() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(MessageBucket.class))).thenReturn(bulk);
+        Message stored = grouped(message("a", NOON, 1));
+        Message lost = grouped(message("b", NOON, 2));
+        when(mongoTemplate.find(any(Query.class), eq(MessageBucket.class))).thenReturn(List.of(bucket(NOON, stored)));
+        MessageStorageImpl storage = new MessageStorageImpl();
+        ReflectionTestUtils.setField(storage, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(storage, "mode", MessageStorageImpl.BUCKETED);
+        ReflectionTestUtils.setField(storage, "windowMinutes", 60);
+        ReflectionTestUtils.setField(storage, "maxMessagesPerBucket", 500);
+
+        assertEquals(List.of("b"), ids(storage.insertMissing(List.of(stored, lost))));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).upsert(any(Query.class), update.capture());
+        assertEquals(1, update.getValue().getUpdateObject().get("$inc", Document.class).get("count"));
+    }
+
+    @Test
+    void exportsKeepOnlyTheHalfOpenTimeRange() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MessageStorageImpl storage = new MessageStorageImpl();
+        ReflectionTestUtils.setField(storage, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(storage, "mode", "flat");
+        ReflectionTestUtils.setField(storage, "maxMessagesPerBucket", 500);
+        LocalDateTime from = NOON.plusMinutes(1);
+        LocalDateTime to = NOON.plusMinutes(3);
+
+        storage.streamByGroup("herbs", from, to, 1000);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Message.class));
+        Document range = query.getValue().getQueryObject().getList("$and", Document.class).get(0).get("timestamp", Document.class);
+        assertEquals(new Document("$gte", from).append("$lt", to), range);
+
+        // Bucketed: whole windows overlapping the range are read, then trimmed message by message
+        ReflectionTestUtils.setField(storage, "mode", MessageStorageImpl.BUCKETED);
+        when(mongoTemplate.stream(any(Query.class), eq(MessageBucket.class))).thenReturn(Stream.of(
+                bucket(NOON, message("b", from, 2), message("a", NOON, 1)),
+                bucket(NOON, message("c", NOON.plusMinutes(2), 3), message("d", to, 4))));
+        try (Stream<Message> messages = storage.streamByGroup("herbs", from, to, 1000)) {
+            assertEquals(List.of("b", "c"), ids(messages.toList()));
+        }
+    }
+
+    @Test
+    void bucketQueriesSortOnlyOnDeclaredIndexes() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(MessageBucket.class))).thenAnswer(invocation -> Stream.empty());
+        MessageStorageImpl storage = new MessageStorageImpl();
+        ReflectionTestUtils.setField(storage, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(storage, "mode", MessageStorageImpl.BUCKETED);
+        ReflectionTestUtils.setField(storage, "windowMinutes", 60);
+        ReflectionTestUtils.setField(storage, "maxMessagesPerBucket", 500);
+
+        storage.findByGroup("herbs", PageRequest.of(0, 50));
+        storage.findByGroupBefore("herbs", NOON, new ObjectId(), PageRequest.of(0, 50));
+        storage.findByGroupAndSequenceGreaterThan("herbs", 1, PageRequest.of(0, 50));
+        storage.streamByGroup("herbs", NOON, null, 1000).close();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(4)).stream(queries.capture(), eq(MessageBucket.class));
+        for (Query query : queries.getAllValues()) {
+            assertTrue(servedByIndex(MessageBucket.class, "group", query.getSortObject()), query.toString());
+        }
+    }
+
+    // True when an index declared on the document leads with the equality field followed by exactly the sort keys,
+    // in the same or the fully reversed direction, so MongoDB can walk it instead of sorting in memory
+    private static boolean servedByIndex(Class<?> document, String equalityField, Document sort) {
+        for (CompoundIndex index : document.getAnnotation(CompoundIndexes.class).value()) {
+            List<Map.Entry<String, Object>> keys = new ArrayList<>(Document.parse(index.def()).entrySet());
+            if (!keys.get(0).getKey().equals(equalityField) || keys.size() - 1 < sort.size()) {
+                continue;
+            }
+            Set<Integer> directions = new HashSet<>();
+            boolean prefix = true;
+            int i = 1;
+            for (Map.Entry<String, Object> key : sort.entrySet()) {
+                Map.Entry<String, Object> indexKey = keys.get(i++);
+                prefix &= indexKey.getKey().equals(key.getKey());
+                directions.add(((Number) indexKey.getValue()).intValue() * ((Number) key.getValue()).intValue());
+            }
+            if (prefix && directions.size() == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Message grouped(Message message) {
+        message.setGroup("herbs");
+        return message;
+    }
+
+    private static MessageBucket bucket(LocalDateTime start, Message... messages) {
+        MessageBucket bucket = new MessageBucket();
+        bucket.setStart(start);
+        bucket.setMessages(new ArrayList<>(List.of(messages)));
+        bucket.setCount(messages.length);
+        bucket.setFirstSequence(List.of(messages).stream().mapToLong(Message::getSequence).min().orElse(0));
+        bucket.setLastSequence(List.of(messages).stream().mapToLong(Message::getSequence).max().orElse(0));
+        return bucket;
+    }
+
+    private static Message message(String id, LocalDateTime timestamp, long sequence) {
+        Message message = new Message();
+        message.setId(id);
+        message.setTimestamp(timestamp);
+        message.setSequence(sequence);
+        return message;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+}
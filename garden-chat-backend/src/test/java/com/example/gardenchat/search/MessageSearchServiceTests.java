@@ -0,0 +1,135 @@
+package com.example.gardenchat.search;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.MessageBucket;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageSearchServiceTests {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private MongoTemplate mongoTemplate;
+    private MessageSearchService search;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        search = new MessageSearchService();
+        ReflectionTestUtils.setField(search, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(search, "chatMetrics", mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(search, "enabled", true);
+        ReflectionTestUtils.setField(search, "brokerMode", "simple");
+        ReflectionTestUtils.setField(search, "maxDocuments", 2);
+        ReflectionTestUtils.setField(search, "queueCapacity", 100);
+        ReflectionTestUtils.setField(search, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(search, "maxPageSize", 100);
+        ReflectionTestUtils.setField(search, "maxResults", 1000);
+        ReflectionTestUtils.setField(search, "snapshotPath", "");
+        ReflectionTestUtils.setField(search, "storageMode", "flat");
+        ReflectionTestUtils.setField(search, "windowMinutes", 60);
+        ReflectionTestUtils.invokeMethod(search, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(search, "shutdown");
+    }
+
+    @Test
+    void broadcastsAreIndexedOnTheIndexingThread() throws InterruptedException {
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class))).thenAnswer(invocation -> Stream.empty());
+        search.index(message("a", NOON, "basil before the index loaded"));
+        search.load();
+        search.index(message("b", NOON.plusSeconds(1), "basil after"));
+
+        for (int i = 0; i < 100 && search.search("basil", null, null, null, null, 10).getTotal() < 2; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, search.search("basil", null, null, null, null, 10).getTotal());
+        assertEquals(0, search.dropped());
+    }
+
+    @Test
+    void multiNodeBrokerModesTurnSearchOff() {
+        ReflectionTestUtils.invokeMethod(search, "shutdown");
+        ReflectionTestUtils.setField(search, "brokerMode", "bridged");
+        ReflectionTestUtils.invokeMethod(search, "init");
+
+        search.index(message("a", NOON, "basil"));
+        assertEquals(0, search.pending());
+        assertFalse((Boolean) ReflectionTestUtils.getField(search, "enabled"));
+    }
+
+    @Test
+    void flatCatchUpReadsOnlyTheNewestMessagesAlongTheIdIndex() {
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class))).thenAnswer(invocation -> Stream.of(
+                message("c", NOON.plusSeconds(2), "c"), message("b", NOON.plusSeconds(1), "b")));
+        List<String> added = new ArrayList<>();
+
+        search.catchUp(NOON, m -> added.add(m.getId()));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Message.class));
+        assertEquals(new Document("_id", -1), query.getValue().getSortObject());
+        assertEquals(2, query.getValue().getLimit());
+        assertTrue(query.getValue().getQueryObject().containsKey("_id"));
+        assertEquals(List.of("b", "c"), added); // Oldest first, as the index numbers documents
+    }
+
+    @Test
+    void bucketedCatchUpStopsOnceTheIndexWouldBeFull() {
+        ReflectionTestUtils.setField(search, "storageMode", "bucketed");
+        MessageBucket newest = bucket(message("d", NOON.plusHours(1), "d"));
+        MessageBucket older = bucket(message("b", NOON.minusMinutes(1), "b"), message("c", NOON.plusMinutes(1), "c"));
+        MessageBucket oldest = bucket(message("a", NOON.minusHours(1), "a"));
+        when(mongoTemplate.stream(any(Query.class), eq(MessageBucket.class)))
+                .thenAnswer(invocation -> Stream.of(newest, older, oldest));
+        List<String> added = new ArrayList<>();
+
+        search.catchUp(NOON, m -> added.add(m.getId()));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(MessageBucket.class));
+        assertEquals(new Document("_id", -1), query.getValue().getSortObject());
+        assertEquals(List.of("c", "d"), added); // b is before the snapshot, a's bucket is never read
+    }
+
+    private static MessageBucket bucket(Message... messages) {
+        MessageBucket bucket = new MessageBucket();
+        bucket.setGroup("herbs");
+        bucket.setMessages(List.of(messages));
+        return bucket;
+    }
+
+    private static Message message(String id, LocalDateTime timestamp, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setGroup("herbs");
+        message.setContent(content);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.gardenchat.search;
+
+import com.example.gardenchat.model.Message;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchIndexTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void ranksMessagesMatchingEveryTermAndAppliesFilters() {
+        SearchIndex index = new SearchIndex(100);
+        index.add(message("herbs", "Basil and tomatoes, basil everywhere", 0));
+        index.add(message("herbs", "Is basil a perennial?", 1));
+        index.add(message("veg", "Tomatoes need basil nearby", 2));
+        index.add(message("veg", "Watering tomatoes daily", 3));
+
+        SearchIndex.Result both = index.search("BASIL tomatoes", null, null, null, 0, 10);
+        assertEquals(2, both.total());
+        assertEquals(List.of("Basil and tomatoes, basil everywhere", "Tomatoes need basil nearby"), contents(both));
+
+        assertEquals(List.of("Tomatoes need basil nearby"),
+                contents(index.search("basil", "veg", null, null, 0, 10)));
+        assertEquals(List.of("Is basil a perennial?"),
+                contents(index.search("basil", null, START.plusMinutes(1), START.plusMinutes(2), 0, 10)));
+        assertEquals(0, index.search("basil okra", null, null, null, 0, 10).total());
+    }
+
+    @Test
+    void dropsOldestMessagesBeyondCapacityAndPagesByOffset() {
+        SearchIndex index = new SearchIndex(3);
+        for (int i = 0; i < 10; i++) {
+            index.add(message("herbs", "mint " + i, i));
+        }
+        assertEquals(3, index.size());
+        SearchIndex.Result first = index.search("mint", null, null, null, 0, 2);
+        assertEquals(3, first.total());
+        assertEquals(List.of("mint 9", "mint 8"), contents(first)); // Equal scores: newest first
+        assertEquals(List.of("mint 7"), contents(index.search("mint", null, null, null, 2, 2)));
+        assertEquals(0, index.search("0", null, null, null, 0, 2).total());
+    }
+
+    @Test
+    void snapshotRoundTripsTheIndexedMessages(@TempDir Path dir) throws Exception {
+        SearchIndex index = new SearchIndex(10);
+        index.add(message("herbs", "Sage flowers attract bees", 0));
+        index.add(message("herbs", "Thyme über alles", 1));
+        Path file = dir.resolve("index.bin");
+        SearchSnapshot.write(file, index.documents());
+
+        SearchIndex reloaded = new SearchIndex(10);
+        SearchSnapshot.read(file).forEach(reloaded::add);
+        assertEquals(index.documents(), reloaded.documents());
+        assertEquals(List.of("Thyme über alles"), contents(reloaded.search("ÜBER", "herbs", null, null, 0, 5)));
+    }
+
+    private static Message message(String group, String content, int minute) {
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setGroup(group);
+        message.setSender("rose");
+        message.setContent(content);
+        message.setTimestamp(START.plusMinutes(minute).truncatedTo(ChronoUnit.MILLIS));
+        message.setSequence((long) minute + 1);
+        return message;
+    }
+
+    private static List<String> contents(SearchIndex.Result result) {
+        return result.matches().stream().map(m -> m.message().getContent()).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.config.SecurityConfig;
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.User;
+import com.example.gardenchat.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CredentialServiceTests {
+
+    private UserRepository repository;
+    private PasswordEncoder encoder;
+    private CredentialService credentials;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserRepository.class);
+        encoder = new SecurityConfig().passwordEncoder(4);
+        credentials = new CredentialService();
+        ReflectionTestUtils.setField(credentials, "userRepository", repository);
+        ReflectionTestUtils.setField(credentials, "passwordEncoder", encoder);
+        ReflectionTestUtils.setField(credentials, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry(), 10));
+        ReflectionTestUtils.setField(credentials, "maxEntries", 2);
+        ReflectionTestUtils.setField(credentials, "ttlMillis", 600_000L);
+        credentials.init();
+    }
+
+    @Test
+    void storesHashAndRejectsDuplicates() {
+        when(repository.insert(any(User.class))).thenAnswer(i -> i.getArgument(0))
+                .thenThrow(new DuplicateKeyException("E11000"));
+        assertTrue(credentials.register("rose", "thorns"));
+        assertFalse(credentials.register("rose", "petals"));
+    }
+
+    @Test
+    void rejectsTakenUsernameBeforeTheUniqueIndexExists() {
+        when(repository.findByUsername("rose")).thenReturn(user("rose", "{bcrypt}hash"));
+        when(repository.insert(any(User.class))).thenAnswer(i -> i.getArgument(0)); // No index to reject it
+        assertFalse(credentials.register("rose", "petals"));
+        verify(repository, never()).insert(any(User.class));
+    }
+
+    @Test
+    void cachesVerifiedLoginsButNotFailures() {
+        when(repository.findByUsername("rose")).thenReturn(user("rose", encoder.encode("thorns")));
+        assertTrue(credentials.verify("rose", "thorns"));
+        assertTrue(credentials.verify("rose", "thorns")); // Served from the cache
+        assertFalse(credentials.verify("rose", "petals"));
+        verify(repository, times(2)).findByUsername("rose");
+        assertEquals(1, credentials.cachedUsers());
+    }
+
+    @Test
+    void rehashesLegacyPlainTextPasswords() {
+        User legacy = user("fern", "fronds");
+        when(repository.findByUsername("fern")).thenReturn(legacy);
+        assertTrue(credentials.verify("fern", "fronds"));
+        assertNotEquals("fronds", legacy.getPassword());
+        assertTrue(legacy.getPassword().startsWith("{bcrypt}"));
+        verify(repository).save(legacy);
+    }
+
+    private static User user(String username, String password) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        return user;
+    }
+}
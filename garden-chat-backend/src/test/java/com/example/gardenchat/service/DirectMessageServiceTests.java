@@ -0,0 +1,105 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.DeliveryReceipt;
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.UnreadCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DirectMessageServiceTests {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private DirectMessageService directMessages;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+        when(userRegistry.getUser("bob")).thenReturn(mock(SimpUser.class));
+        UnreadCounter stored = new UnreadCounter();
+        stored.setReceiver("bob");
+        stored.setSender("carol");
+        stored.setUnread(2);
+        when(mongoTemplate.find(any(Query.class), eq(UnreadCounter.class))).thenReturn(List.of(stored));
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(UnreadCounter.class))).thenReturn(bulk);
+        directMessages = new DirectMessageService();
+        ReflectionTestUtils.setField(directMessages, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(directMessages, "userRegistry", userRegistry);
+        ReflectionTestUtils.setField(directMessages, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(directMessages, "idleTtlMillis", 600_000L);
+    }
+
+    @Test
+    void pushesToReceiverAndCountsOnTopOfStoredUnread() {
+        Message message = message("m1", "alice", "bob");
+        directMessages.deliver(message);
+        directMessages.deliver(message("m2", "alice", "bob"));
+        verify(messagingTemplate).convertAndSendToUser("bob", DirectMessageService.MESSAGES_QUEUE, message);
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq("alice"), eq(DirectMessageService.RECEIPTS_QUEUE),
+                argThat(r -> DeliveryReceipt.DELIVERED.equals(((DeliveryReceipt) r).getStatus())));
+        assertEquals(Map.of("alice", 2L, "carol", 2L), directMessages.unread("bob"));
+
+        directMessages.markRead("bob", "carol", "c9");
+        assertEquals(Map.of("alice", 2L), directMessages.unread("bob"));
+        verify(messagingTemplate).convertAndSendToUser("carol", DirectMessageService.RECEIPTS_QUEUE,
+                new DeliveryReceipt("carol", "bob", "c9", DeliveryReceipt.READ));
+    }
+
+    @Test
+    void flushesIncrementsAndResetsOnceThenKeepsThemAfterAFailedWrite() {
+        directMessages.deliver(message("m1", "alice", "bob"));
+        directMessages.markRead("bob", "carol", "c9");
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+        directMessages.flush();
+        verify(bulk).upsert(any(Query.class), eq(new Update().inc("unread", 1L)));
+        verify(bulk).upsert(any(Query.class), eq(new Update().set("unread", 0L).set("lastRead", "c9")));
+
+        directMessages.deliver(message("m2", "alice", "bob"));
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(UnreadCounter.class))).thenReturn(bulk);
+        directMessages.flush();
+        verify(bulk).upsert(any(Query.class), eq(new Update().inc("unread", 2L)));
+        verify(bulk).execute();
+
+        bulk = mock(BulkOperations.class);
+        directMessages.flush(); // Nothing left to write
+        verify(mongoTemplate, times(2)).bulkOps(any(BulkOperations.BulkMode.class), eq(UnreadCounter.class));
+        assertNotNull(directMessages.unread("bob"));
+        assertNull(directMessages.unread("bob").get("carol"));
+    }
+
+    private static Message message(String id, String sender, String receiver) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        return message;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.repository.MessageRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class GroupSequencerTests {
+
+    private MessageRepository messageRepository;
+    private MongoTemplate mongoTemplate;
+    private GroupSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        sequencer = new GroupSequencer();
+        ReflectionTestUtils.setField(sequencer, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(sequencer, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(sequencer, "allocator", "local");
+        ReflectionTestUtils.setField(sequencer, "blockSize", 100);
+        ReflectionTestUtils.setField(sequencer, "brokerMode", "simple");
+        ReflectionTestUtils.setField(sequencer, "maxGroups", 2);
+    }
+
+    private static Message stored(long sequence) {
+        Message message = new Message();
+        message.setSequence(sequence);
+        return message;
+    }
+
+    @Test
+    void localCounterFailsTheSendUntilItCanBeSeededFromStorage() {
+        doThrow(new DataAccessResourceFailureException("down")).doReturn(stored(41))
+                .when(messageRepository).findFirstByGroupOrderBySequenceDesc("garden");
+
+        assertThrows(DataAccessResourceFailureException.class, () -> sequencer.next("garden"));
+        assertEquals(42, sequencer.next("garden")); // Continues from storage, not from an invented number
+        assertEquals(43, sequencer.next("garden"));
+        verify(messageRepository, times(2)).findFirstByGroupOrderBySequenceDesc("garden");
+    }
+
+    @Test
+    void idleGroupsAreDroppedAndReloadFromStorage() {
+        doReturn(stored(10)).when(messageRepository).findFirstByGroupOrderBySequenceDesc("garden");
+        assertEquals(11, sequencer.next("garden"));
+        sequencer.next("herbs");
+        assertEquals(12, sequencer.next("garden")); // Touched again, so herbs is now the one idle longest
+        sequencer.next("trees");
+        verify(messageRepository, times(1)).findFirstByGroupOrderBySequenceDesc("garden");
+
+        sequencer.next("roses"); // Over max-groups: garden goes
+        doReturn(stored(12)).when(messageRepository).findFirstByGroupOrderBySequenceDesc("garden");
+        assertEquals(13, sequencer.next("garden"));
+        verify(messageRepository, times(2)).findFirstByGroupOrderBySequenceDesc("garden");
+    }
+
+    @Test
+    void rejectsGroupNamesNoClientSends() {
+        assertThrows(IllegalArgumentException.class, () -> sequencer.next(" "));
+        assertThrows(IllegalArgumentException.class, () -> sequencer.next("a\u0000b"));
+        assertThrows(IllegalArgumentException.class,
+                () -> sequencer.next("g".repeat(GroupSequencer.MAX_GROUP_NAME_LENGTH + 1)));
+        assertEquals(1, sequencer.next("Herb garden"));
+        verify(messageRepository, times(1)).findFirstByGroupOrderBySequenceDesc(any());
+    }
+
+    @Test
+    void multiNodeBrokerModesAlwaysShareTheCounter() {
+        ReflectionTestUtils.setField(sequencer, "brokerMode", "bridged");
+        ReflectionTestUtils.invokeMethod(sequencer, "init");
+        assertEquals("mongo", ReflectionTestUtils.getField(sequencer, "allocator"));
+
+        ReflectionTestUtils.setField(sequencer, "allocator", "local");
+        ReflectionTestUtils.setField(sequencer, "brokerMode", "simple");
+        ReflectionTestUtils.invokeMethod(sequencer, "init");
+        assertEquals("local", ReflectionTestUtils.getField(sequencer, "allocator"));
+    }
+
+    @Test
+    void sharedCounterIsReservedInBlocks() {
+        ReflectionTestUtils.setField(sequencer, "allocator", "mongo");
+        doReturn(new Document("value", 100L), new Document("value", 200L)).when(mongoTemplate).findAndModify(
+                any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Document.class),
+                eq(GroupSequencer.COUNTERS_COLLECTION));
+
+        for (long expected = 1; expected <= 150; expected++) {
+            assertEquals(expected, sequencer.next("garden"));
+        }
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq(GroupSequencer.COUNTERS_COLLECTION));
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(GroupSequencer.COUNTERS_COLLECTION));
+    }
+
+    @Test
+    void sharedCounterRetriesItsSeedAfterAFailure() {
+        ReflectionTestUtils.setField(sequencer, "allocator", "mongo");
+        doThrow(new DataAccessResourceFailureException("down")).doReturn(null)
+                .when(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(GroupSequencer.COUNTERS_COLLECTION));
+        doReturn(new Document("value", 100L)).when(mongoTemplate).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq(GroupSequencer.COUNTERS_COLLECTION));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> sequencer.next("garden"));
+        assertEquals(1, sequencer.next("garden"));
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), any(Update.class), eq(GroupSequencer.COUNTERS_COLLECTION));
+    }
+}
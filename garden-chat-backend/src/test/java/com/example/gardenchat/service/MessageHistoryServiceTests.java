@@ -0,0 +1,164 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.MessagePage;
+import com.example.gardenchat.repository.MessageRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MessageHistoryServiceTests {
+
+    private MessageRepository messageRepository;
+    private RecentMessageCache cache;
+    private MessageHistoryService history;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        cache = new RecentMessageCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "messagesPerGroup", 3);
+        ReflectionTestUtils.setField(cache, "maxTotalMessages", 1000);
+        ReflectionTestUtils.setField(cache, "idleTtlMillis", 600_000L);
+        history = new MessageHistoryService();
+        ReflectionTestUtils.setField(history, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(history, "recentMessageCache", cache);
+        ReflectionTestUtils.setField(history, "chatMetrics", mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(history, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(history, "maxPageSize", 200);
+    }
+
+    private static Message message(long sequence) {
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setGroup("garden");
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(sequence));
+        message.setSequence(sequence);
+        return message;
+    }
+
+    private static List<Long> sequences(MessagePage page) {
+        return page.getMessages().stream().map(Message::getSequence).toList();
+    }
+
+    @Test
+    void gapCoveredByTheCacheIsPagedWithoutADatabaseRead() {
+        for (long sequence = 4; sequence <= 6; sequence++) {
+            cache.add(message(sequence));
+        }
+
+        MessagePage first = history.groupSince("garden", 4, 1);
+        assertEquals(List.of(5L), sequences(first));
+        assertEquals("5", first.getNextCursor());
+
+        MessagePage last = history.groupSince("garden", Long.parseLong(first.getNextCursor()), 1);
+        assertEquals(List.of(6L), sequences(last));
+        assertEquals("6", last.getNextCursor()); // A full page; the next one comes back empty
+        MessagePage empty = history.groupSince("garden", 6, 1);
+        assertEquals(List.of(), sequences(empty));
+        assertNull(empty.getNextCursor());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void databasePageIsToppedUpWithBroadcastsNotYetPersisted() {
+        for (long sequence = 4; sequence <= 6; sequence++) {
+            cache.add(message(sequence)); // Still in the write-behind queue
+        }
+        when(messageRepository.findByGroupAndSequenceGreaterThan(eq("garden"), eq(1L), any(Pageable.class)))
+                .thenReturn(List.of(message(2), message(3)));
+
+        MessagePage page = history.groupSince("garden", 1, 10);
+
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), sequences(page));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void fullDatabasePageReturnsItsLastSequenceAsTheCursor() {
+        cache.add(message(9));
+        when(messageRepository.findByGroupAndSequenceGreaterThan(eq("garden"), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(message(2), message(3)));
+
+        MessagePage page = history.groupSince("garden", 1, 2);
+
+        assertEquals(List.of(2L, 3L), sequences(page));
+        assertEquals("3", page.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> history.groupSince("garden", -1, 2));
+    }
+
+    @Test
+    void cursorsRoundTripAndRejectMalformedValues() {
+        Message message = message(0); // Midnight: LocalDateTime.toString() drops the zero seconds
+        MessageHistoryService.Cursor cursor = MessageHistoryService.Cursor.parse(MessageHistoryService.Cursor.of(message));
+        assertEquals(message.getTimestamp(), cursor.timestamp());
+        assertEquals(message.getId(), cursor.id().toHexString());
+
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 30, 5, 123_456_789));
+        assertEquals(message.getTimestamp(),
+                MessageHistoryService.Cursor.parse(MessageHistoryService.Cursor.of(message)).timestamp());
+
+        assertNull(MessageHistoryService.Cursor.parse(null));
+        assertNull(MessageHistoryService.Cursor.parse(" "));
+        String id = new ObjectId().toHexString();
+        for (String invalid : List.of("garbage", "_" + id, "2024-01-01T00:00_xyz", "yesterday_" + id, "2024-01-01T00:00")) {
+            assertThrows(IllegalArgumentException.class, () -> MessageHistoryService.Cursor.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    void pageSizesAreClampedAndOnlyFullPagesHaveACursor() {
+        Message oldest = message(1);
+        when(messageRepository.findByGroupBefore(eq("garden"), any(), any(), any(Pageable.class)))
+                .thenReturn(List.of(message(2), oldest));
+        String before = MessageHistoryService.Cursor.of(message(3));
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+
+        MessagePage full = history.groupPage("garden", before, 2);
+        assertEquals(MessageHistoryService.Cursor.of(oldest), full.getNextCursor());
+        assertNull(history.groupPage("garden", before, 3).getNextCursor()); // Short page: history exhausted
+        history.groupPage("garden", before, 0);
+        history.groupPage("garden", before, 1000);
+        history.groupPage("garden", before, null);
+
+        verify(messageRepository, times(5))
+                .findByGroupBefore(eq("garden"), eq(message(3).getTimestamp()), any(), pageable.capture());
+        assertEquals(List.of(2, 3, 1, 200, 50), pageable.getAllValues().stream().map(Pageable::getPageSize).toList());
+        assertNull(MessageHistoryService.toPage(List.of(), 0).getNextCursor()); // Empty is never "full"
+    }
+
+    @Test
+    void firstGroupPageIsServedFromTheCacheOnceSeeded() {
+        when(messageRepository.findByGroup(eq("garden"), any(Pageable.class))).thenReturn(List.of(message(2), message(1)));
+
+        MessagePage seeded = history.groupPage("garden", null, 3); // Short page: the whole history, now cached
+        assertEquals(List.of(2L, 1L), sequences(seeded));
+        assertNull(seeded.getNextCursor());
+
+        cache.add(message(3));
+        MessagePage cached = history.groupPage("garden", null, 3);
+        assertEquals(List.of(3L, 2L, 1L), sequences(cached));
+        assertEquals(MessageHistoryService.Cursor.of(cached.getMessages().get(2)), cached.getNextCursor());
+        verify(messageRepository).findByGroup(eq("garden"), any(Pageable.class));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.repository.MessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessagePersistenceServiceTests {
+
+    @TempDir
+    Path dir;
+
+    private MessageRepository repository;
+    private MessagePersistenceService persistence;
+    private final List<List<String>> inserted = new ArrayList<>(); // Ids per insert call, guarded by itself
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(MessageRepository.class);
+        when(repository.insert(anyList())).thenAnswer(i -> recorded(i.getArgument(0)));
+        persistence = new MessagePersistenceService();
+        ReflectionTestUtils.setField(persistence, "messageRepository", repository);
+        ReflectionTestUtils.setField(persistence, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry(), 10));
+        ReflectionTestUtils.setField(persistence, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(persistence, "queueCapacity", 10);
+        ReflectionTestUtils.setField(persistence, "batchSize", 2);
+        ReflectionTestUtils.setField(persistence, "flushIntervalMs", 200L);
+        ReflectionTestUtils.setField(persistence, "offerTimeoutMs", 1L);
+        ReflectionTestUtils.setField(persistence, "maxRetries", 2);
+        ReflectionTestUtils.setField(persistence, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(persistence, "deadLetterPath", dir.resolve("dead.ndjson").toString());
+    }
+
+    @Test
+    void writesFullBatchesAndFlushesTheRestOnShutdown() throws InterruptedException {
+        persistence.start();
+        for (int i = 0; i < 5; i++) {
+            persistence.enqueue(message("m" + i));
+        }
+        persistence.shutdown();
+        persistence.enqueue(message("late")); // The gate is closed: written inline, never queued and lost
+        synchronized (inserted) {
+            assertEquals(List.of(List.of("m0", "m1"), List.of("m2", "m3"), List.of("m4")), inserted);
+        }
+        verify(repository).save(any(Message.class));
+    }
+
+    @Test
+    void writesInlineWhenTheQueueStaysFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(i -> {
+            writing.countDown();
+            release.await();
+            return recorded(i.getArgument(0));
+        }).when(repository).insert(anyList());
+        ReflectionTestUtils.setField(persistence, "queueCapacity", 2);
+        ReflectionTestUtils.setField(persistence, "batchSize", 1);
+        persistence.start();
+        persistence.enqueue(message("m0"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS)); // The writer holds m0
+        persistence.enqueue(message("m1"));
+        persistence.enqueue(message("m2"));
+        Message overflow = message("m3");
+        persistence.enqueue(overflow); // Capacity 2: the caller writes it itself
+        verify(repository).save(overflow);
+        release.countDown();
+        persistence.shutdown();
+        synchronized (inserted) {
+            assertEquals(List.of(List.of("m0"), List.of("m1"), List.of("m2")), inserted);
+        }
+    }
+
+    @Test
+    void retriesOnlyWhatAFailedBatchDidNotStore() throws InterruptedException {
+        doThrow(new DataAccessResourceFailureException("down")).when(repository).insert(anyList());
+        when(repository.insertMissing(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("still down"))
+                .thenAnswer(i -> i.getArgument(0));
+        persistence.start();
+        persistence.enqueue(message("m0"));
+        persistence.enqueue(message("m1"));
+        verify(repository, timeout(5000).times(2)).insertMissing(anyList());
+        persistence.shutdown();
+        assertTrue(Files.notExists(dir.resolve("dead.ndjson")));
+    }
+
+    @Test
+    void deadLettersABatchOnceRetriesRunOut() throws Exception {
+        doThrow(new DataAccessResourceFailureException("down")).when(repository).insert(anyList());
+        when(repository.insertMissing(anyList())).thenThrow(new DataAccessResourceFailureException("gone"));
+        persistence.start();
+        persistence.enqueue(message("m0"));
+        persistence.enqueue(message("m1"));
+        verify(repository, timeout(5000).times(2)).insertMissing(anyList());
+        persistence.shutdown();
+        List<String> lines = Files.readAllLines(dir.resolve("dead.ndjson"));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"content\":\"m0\""));
+    }
+
+    private List<Message> recorded(List<Message> batch) {
+        synchronized (inserted) {
+            inserted.add(batch.stream().map(Message::getContent).toList());
+        }
+        return batch;
+    }
+
+    private static Message message(String content) {
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setGroup("herbs");
+        message.setContent(content);
+        return message;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.Message;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecentMessageCacheTests {
+
+    private RecentMessageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentMessageCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "messagesPerGroup", 3);
+        ReflectionTestUtils.setField(cache, "maxTotalMessages", 5);
+        ReflectionTestUtils.setField(cache, "idleTtlMillis", 600_000L);
+        ReflectionTestUtils.setField(cache, "brokerMode", "simple");
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @Test
+    void multiNodeBrokerModesTurnTheCacheOff() {
+        ReflectionTestUtils.setField(cache, "brokerMode", "relay");
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        cache.add(message("garden", 1));
+        assertNull(cache.newest("garden", 1));
+        assertEquals(0, cache.groups());
+    }
+
+    @Test
+    void readsOfGroupsWithoutHistoryLeaveNoRing() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(List.of(), cache.seed("nobody-" + i, List.of(), true, 20));
+        }
+        assertEquals(0, cache.groups());
+
+        cache.add(message("garden", 1));
+        assertEquals(List.of("m1"), cache.seed("garden", List.of(), true, 20).stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void keepsNewestMessagesPerGroup() {
+        for (int i = 0; i < 4; i++) {
+            cache.add(message("garden", i));
+        }
+        List<Message> page = cache.newest("garden", 3);
+        assertEquals(List.of("m3", "m2", "m1"), page.stream().map(Message::getContent).toList());
+        assertNull(cache.newest("garden", 4)); // Only three cached and older history may exist
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void keepsLateBroadcastsInPageOrder() {
+        cache.add(message("garden", 1));
+        cache.add(message("garden", 3));
+        cache.add(message("garden", 2)); // Broadcast on another inbound thread, recorded after a newer one
+        assertEquals(List.of("m3", "m2", "m1"),
+                cache.newest("garden", 3).stream().map(Message::getContent).toList());
+        cache.add(message("garden", 0)); // Older than everything cached in a full ring: trimmed straight away
+        assertEquals(List.of("m3", "m2", "m1"),
+                cache.newest("garden", 3).stream().map(Message::getContent).toList());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void seededCompleteHistoryAnswersShortPages() {
+        List<Message> page = cache.seed("garden", List.of(message("garden", 1), message("garden", 0)), true, 50);
+        assertEquals(2, page.size());
+        assertEquals(2, cache.newest("garden", 50).size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedGroupsOverBudget() throws InterruptedException {
+        cache.add(message("cold", 0));
+        cache.add(message("cold", 1));
+        cache.add(message("cold", 2));
+        Thread.sleep(2);
+        cache.add(message("hot", 0));
+        cache.add(message("hot", 1));
+        cache.add(message("hot", 2)); // Six messages exceeds the budget of five
+        assertEquals(1, cache.groups());
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    void replaysGapsItCoversBySequence() {
+        for (int i = 1; i <= 4; i++) {
+            cache.add(message("garden", i)); // The ring keeps sequences 2..4
+        }
+        List<Message> replay = cache.since("garden", 2, 10);
+        assertEquals(List.of(3L, 4L), replay.stream().map(Message::getSequence).toList());
+        assertNull(cache.since("garden", 0, 10)); // Sequence 1 was pushed out, so the gap isn't covered
+        assertEquals(3, cache.cachedSince("garden", 0, 10).size());
+    }
+
+    private static Message message(String group, int n) {
+        Message message = new Message();
+        message.setId(new ObjectId().toHexString());
+        message.setGroup(group);
+        message.setContent("m" + n);
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(n));
+        message.setSequence((long) n);
+        return message;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.gardenchat.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SessionTokenServiceTests {
+
+    private static SessionTokenService tokens(String secret, boolean requireSecret) {
+        SessionTokenService tokens = new SessionTokenService();
+        ReflectionTestUtils.setField(tokens, "secret", secret);
+        ReflectionTestUtils.setField(tokens, "requireSecret", requireSecret);
+        ReflectionTestUtils.setField(tokens, "ttlMillis", 60_000L);
+        tokens.init();
+        return tokens;
+    }
+
+    @Test
+    void tokensSignedWithTheSharedSecretAreAcceptedByEveryNode() {
+        String token = tokens("shared", true).issue("alice");
+
+        assertEquals("alice", tokens("shared", true).verifyBearer("Bearer " + token));
+        assertNull(tokens("other", true).verifyBearer("Bearer " + token));
+        assertNull(tokens("shared", true).verifyBearer(token)); // Not a bearer header
+        assertNull(tokens("shared", true).verifyBearer(null));
+    }
+
+    @Test
+    void refusesToStartWithoutASecretWhenOneIsRequired() {
+        assertThrows(IllegalStateException.class, () -> tokens("", true));
+
+        SessionTokenService development = tokens("", false); // Random per-process key
+        assertEquals("alice", development.verify(development.issue("alice")));
+    }
+}
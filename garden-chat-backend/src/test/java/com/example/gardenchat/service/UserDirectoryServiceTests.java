@@ -0,0 +1,64 @@
+package com.example.gardenchat.service;
+
+import com.example.gardenchat.model.User;
+import com.example.gardenchat.model.UserPage;
+import com.example.gardenchat.model.UserSummary;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserDirectoryServiceTests {
+
+    private UserDirectoryService directory;
+
+    @BeforeEach
+    void setUp() {
+        directory = new UserDirectoryService();
+        ReflectionTestUtils.setField(directory, "inMemory", true);
+        ReflectionTestUtils.setField(directory, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(directory, "maxPageSize", 10);
+        ReflectionTestUtils.setField(directory, "loaded", true);
+        for (String name : List.of("basil", "bay", "beet", "chard", "chive")) {
+            saved(name);
+        }
+    }
+
+    @Test
+    void pagesThroughPrefixMatchesInUsernameOrder() {
+        UserPage first = directory.page("b", null, null);
+        assertEquals(List.of("basil", "bay"), usernames(first));
+        assertEquals("bay", first.getNextCursor());
+        UserPage second = directory.page("b", first.getNextCursor(), null);
+        assertEquals(List.of("beet"), usernames(second));
+        assertNull(second.getNextCursor());
+        assertEquals(List.of("chard", "chive"), usernames(directory.page("ch", null, 5)));
+    }
+
+    @Test
+    void etagChangesWhenPageContentChanges() {
+        String before = UserDirectoryService.etag(directory.page("ch", null, 5));
+        assertEquals(before, UserDirectoryService.etag(directory.page("ch", null, 5)));
+        saved("chervil");
+        assertNotEquals(before, UserDirectoryService.etag(directory.page("ch", null, 5)));
+    }
+
+    private void saved(String username) {
+        User user = new User();
+        user.setId(new ObjectId().toHexString());
+        user.setUsername(username);
+        directory.onAfterSave(new AfterSaveEvent<>(user, new Document(), "users"));
+    }
+
+    private static List<String> usernames(UserPage page) {
+        return page.getUsers().stream().map(UserSummary::getUsername).toList();
+    }
+}
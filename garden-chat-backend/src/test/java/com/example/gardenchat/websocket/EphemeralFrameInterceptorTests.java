@@ -0,0 +1,78 @@
+package com.example.gardenchat.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class EphemeralFrameInterceptorTests {
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final MessageHandler handler = mock(MessageHandler.class);
+    private SessionPressureTracker tracker;
+    private EphemeralFrameInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SessionPressureTracker();
+        ReflectionTestUtils.setField(tracker, "maxQueuedFrames", 2);
+        ReflectionTestUtils.setField(tracker, "slowSendMillis", 60_000L);
+        tracker.sessionOpened("s1");
+        interceptor = new EphemeralFrameInterceptor(tracker, List.of("/topic/typing/"));
+    }
+
+    private static Message<byte[]> frame(String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId("s1");
+        headers.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+
+    @Test
+    void shedsOnlyEphemeralFramesWhileTheSessionIsBackedUp() {
+        for (int i = 0; i < 3; i++) {
+            Message<byte[]> message = frame("/topic/messages/garden");
+            assertSame(message, interceptor.preSend(message, channel));
+        }
+        assertTrue(tracker.isUnderPressure("s1"));
+
+        assertNull(interceptor.preSend(frame("/topic/typing/garden"), channel));
+        Message<byte[]> chat = frame("/topic/messages/garden"); // Chat messages are never shed
+        assertSame(chat, interceptor.preSend(chat, channel));
+        assertEquals(1, tracker.droppedFrames());
+    }
+
+    @Test
+    void handledAndUnsentFramesReleaseTheBacklog() {
+        Message<byte[]> first = frame("/topic/messages/garden");
+        Message<byte[]> second = frame("/topic/messages/garden");
+        Message<byte[]> third = frame("/topic/messages/garden");
+        interceptor.preSend(first, channel);
+        interceptor.preSend(second, channel);
+        interceptor.preSend(third, channel);
+        assertTrue(tracker.isUnderPressure("s1"));
+
+        interceptor.afterMessageHandled(first, channel, handler, null);
+        interceptor.afterSendCompletion(second, channel, false, null); // Rejected by the executor
+        interceptor.afterSendCompletion(third, channel, true, null);   // Still queued; released once handled
+        assertFalse(tracker.isUnderPressure("s1"));
+
+        Message<byte[]> typing = frame("/topic/typing/garden");
+        assertSame(typing, interceptor.preSend(typing, channel));
+        assertEquals(0, tracker.droppedFrames());
+    }
+}
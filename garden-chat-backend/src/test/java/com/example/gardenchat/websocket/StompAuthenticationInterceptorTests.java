@@ -0,0 +1,73 @@
+package com.example.gardenchat.websocket;
+
+import com.example.gardenchat.service.SessionTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class StompAuthenticationInterceptorTests {
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private SessionTokenService tokens;
+    private StompAuthenticationInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        tokens = new SessionTokenService();
+        ReflectionTestUtils.setField(tokens, "secret", "shared");
+        ReflectionTestUtils.setField(tokens, "ttlMillis", 60_000L);
+        ReflectionTestUtils.invokeMethod(tokens, "init");
+        interceptor = new StompAuthenticationInterceptor(tokens);
+    }
+
+    private static Message<byte[]> connect(String authorization) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        if (authorization != null) {
+            accessor.setNativeHeader("Authorization", authorization);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    void validTokenMakesTheSessionTheUsers() {
+        Message<byte[]> message = connect("Bearer " + tokens.issue("alice"));
+
+        interceptor.preSend(message, channel);
+
+        assertEquals("alice", StompHeaderAccessor.wrap(message).getUser().getName());
+    }
+
+    @Test
+    void connectionsWithoutATokenStayAnonymous() {
+        Message<byte[]> message = connect(null);
+
+        interceptor.preSend(message, channel);
+
+        assertNull(StompHeaderAccessor.wrap(message).getUser());
+    }
+
+    @Test
+    void invalidTokenIsRefusedInsteadOfConnectingAnonymously() {
+        SessionTokenService otherNode = new SessionTokenService(); // Random per-process key, as before a restart
+        ReflectionTestUtils.setField(otherNode, "secret", "");
+        ReflectionTestUtils.setField(otherNode, "ttlMillis", 60_000L);
+        ReflectionTestUtils.invokeMethod(otherNode, "init");
+
+        MessageDeliveryException refused = assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(connect("Bearer " + otherNode.issue("alice")), channel));
+        assertEquals(StompAuthenticationInterceptor.UNAUTHORIZED, refused.getMessage());
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(connect("Bearer not-a-token"), channel));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.gardenchat.websocket;
+
+import com.example.gardenchat.model.Message;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WireFormatNegotiatorTests {
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private WireFormatNegotiator negotiator;
+    private WebSocketHandler tracker;
+
+    @BeforeEach
+    void setUp() {
+        negotiator = new WireFormatNegotiator();
+        ReflectionTestUtils.setField(negotiator, "objectMapper", json);
+        ReflectionTestUtils.setField(negotiator, "cborEnabled", true);
+        ReflectionTestUtils.setField(negotiator, "messagePrefixes", List.of("/topic/messages/"));
+        tracker = negotiator.sessionTracker().decorate(mock(WebSocketHandler.class));
+    }
+
+    @Test
+    void encodesEachBroadcastOnceForAllCborSubscribers() throws Exception {
+        connect("a", mock(WebSocketSession.class), "cbor");
+        connect("b", mock(WebSocketSession.class), "cbor");
+        Message chat = new Message();
+        chat.setSender("rose");
+        chat.setContent("Sunflowers are up");
+        chat.setTimestamp(LocalDateTime.of(2024, 5, 1, 9, 30));
+        byte[] payload = json.writeValueAsBytes(chat);
+
+        org.springframework.messaging.Message<?> toA = negotiator.outbound().preSend(broadcast("a", payload), channel);
+        org.springframework.messaging.Message<?> toB = negotiator.outbound().preSend(broadcast("b", payload), channel);
+
+        assertSame(toA.getPayload(), toB.getPayload());
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(toA);
+        assertEquals("cbor", headers.getFirstNativeHeader(WireFormatNegotiator.ENCODING_HEADER));
+        JsonNode decoded = WireFormatNegotiator.cborMapper().readTree((byte[]) toA.getPayload());
+        assertEquals(chat.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                decoded.get("timestamp").asLong());
+        assertEquals("Sunflowers are up", decoded.get("content").asText());
+    }
+
+    @Test
+    void keepsJsonForSockJsAndUnnegotiatedSessions() throws Exception {
+        connect("sockjs", mock(SockJsSession.class), "cbor");
+        connect("plain", mock(WebSocketSession.class), null);
+        byte[] payload = "{\"content\":\"hi\"}".getBytes();
+        assertSame(payload, negotiator.outbound().preSend(broadcast("sockjs", payload), channel).getPayload());
+        assertSame(payload, negotiator.outbound().preSend(broadcast("plain", payload), channel).getPayload());
+    }
+
+    private void connect(String sessionId, WebSocketSession session, String encoding) throws Exception {
+        when(session.getId()).thenReturn(sessionId);
+        tracker.afterConnectionEstablished(session);
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        if (encoding != null) {
+            accessor.setNativeHeader(WireFormatNegotiator.ENCODING_HEADER, encoding);
+        }
+        ChannelInterceptor inbound = negotiator.inbound();
+        inbound.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), channel);
+    }
+
+    private static org.springframework.messaging.Message<byte[]> broadcast(String sessionId, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/messages/garden");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,146 @@
+// src/main/java/com/example/gardenchat/benchmark/BroadcastBenchmark.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.controller.ChatController;
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.presence.TypingIndicatorService;
+import com.example.gardenchat.search.MessageSearchService;
+import com.example.gardenchat.service.GroupSequencer;
+import com.example.gardenchat.service.MessagePersistenceService;
+import com.example.gardenchat.service.RecentMessageCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// One chat message through ChatController.broadcastMessage and the simple broker's fan-out to N subscribed
+// sessions, as @SendTo does it. Channels are synchronous so the measured time covers the full fan-out;
+// the outbound side stops at the session boundary (no socket writes).
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final String GROUP = "general";
+    private static final String DESTINATION = "/topic/messages/" + GROUP;
+
+    @Param({"10", "100", "1000"})
+    public int subscribers;
+
+    private final LongAdder delivered = new LongAdder();
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate template;
+    private ChatController controller;
+    private MessagePersistenceService persistence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> delivered.increment()); // Stands in for the per-session socket writer
+
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+        broker.start();
+        for (int i = 0; i < subscribers; i++) {
+            String sessionId = "session-" + i;
+            broker.handleMessage(frame(SimpMessageType.CONNECT, sessionId, null));
+            broker.handleMessage(frame(SimpMessageType.SUBSCRIBE, sessionId, DESTINATION));
+        }
+
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(converter);
+
+        ChatMetrics chatMetrics = Fixtures.chatMetrics();
+        persistence = Fixtures.inject(new MessagePersistenceService(), Map.of(
+                "messageRepository", InMemoryMessageRepository.discarding(),
+                "chatMetrics", chatMetrics,
+                "queueCapacity", 10_000,
+                "batchSize", 200,
+                "flushIntervalMs", 100L,
+                "offerTimeoutMs", 50L));
+        ReflectionTestUtils.invokeMethod(persistence, "start");
+        RecentMessageCache cache = Fixtures.inject(new RecentMessageCache(), Map.of(
+                "enabled", true,
+                "messagesPerGroup", 100,
+                "maxTotalMessages", 100_000,
+                "idleTtlMillis", 600_000L));
+        GroupSequencer sequencer = Fixtures.inject(new GroupSequencer(), Map.of(
+                "messageRepository", InMemoryMessageRepository.discarding(),
+                "allocator", "local",
+                "maxGroups", 10_000));
+        TypingIndicatorService typing = Fixtures.inject(new TypingIndicatorService(), Map.of(
+                "messagingTemplate", template,
+                "windowMillis", 3000L));
+        MessageSearchService search = Fixtures.inject(new MessageSearchService(), Map.of(
+                "chatMetrics", chatMetrics,
+                "enabled", true,
+                "brokerMode", "simple",
+                "maxDocuments", 100_000,
+                "queueCapacity", 10_000,
+                "loaded", true));
+        ReflectionTestUtils.invokeMethod(search, "init");
+        controller = Fixtures.inject(new ChatController(), Map.of(
+                "messagePersistenceService", persistence,
+                "messageSearchService", search,
+                "groupSequencer", sequencer,
+                "recentMessageCache", cache,
+                "typingIndicatorService", typing,
+                "objectMapper", objectMapper,
+                "chatMetrics", chatMetrics,
+                "broadcastLogSampleRate", 0.01));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(persistence, "shutdown");
+        broker.stop();
+    }
+
+    @Benchmark
+    public Message broadcast() {
+        Message message = controller.broadcastMessage(GROUP, Fixtures.inbound("rose"));
+        template.convertAndSend(DESTINATION, message); // What @SendTo does with the return value
+        return message;
+    }
+
+    private static org.springframework.messaging.Message<byte[]> frame(SimpMessageType type, String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        if (destination != null) {
+            accessor.setSubscriptionId("sub-0");
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
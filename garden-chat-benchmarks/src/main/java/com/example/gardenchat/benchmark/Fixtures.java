@@ -0,0 +1,56 @@
+// src/main/java/com/example/gardenchat/benchmark/Fixtures.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.metrics.ChatMetrics;
+import com.example.gardenchat.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+// Shared setup for the benchmarks: sample messages, Boot-equivalent ObjectMapper, metrics, field injection
+final class Fixtures {
+
+    private static final String CONTENT = "Has anyone tried companion planting basil with tomatoes this season?";
+
+    private Fixtures() {
+    }
+
+    // Configured like Spring Boot's auto-configured mapper (JavaTimeModule, ISO dates)
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    // A message as the frontend sends it to /app/chat/{group}
+    static Message inbound(String sender) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setContent(CONTENT);
+        return message;
+    }
+
+    // A message as it is stored and broadcast
+    static Message stored(String group, String sender, LocalDateTime timestamp) {
+        Message message = inbound(sender);
+        message.setId(new ObjectId().toHexString());
+        message.setGroup(group);
+        message.setTimestamp(timestamp.truncatedTo(ChronoUnit.MILLIS));
+        return message;
+    }
+
+    // Meters recorded into an in-memory registry, as they would be in the application
+    static ChatMetrics chatMetrics() {
+        return new ChatMetrics(new SimpleMeterRegistry(), 100);
+    }
+
+    // Sets @Autowired / @Value fields the way the container would
+    static <T> T inject(T target, Map<String, Object> fields) {
+        fields.forEach((name, value) -> ReflectionTestUtils.setField(target, name, value));
+        return target;
+    }
+}
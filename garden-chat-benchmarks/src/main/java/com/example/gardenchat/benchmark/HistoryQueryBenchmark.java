@@ -0,0 +1,81 @@
+// src/main/java/com/example/gardenchat/benchmark/HistoryQueryBenchmark.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.model.MessagePage;
+import com.example.gardenchat.repository.MessageRepository;
+import com.example.gardenchat.service.MessageHistoryService;
+import com.example.gardenchat.service.RecentMessageCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// History pages through MessageHistoryService against the in-memory index stand-in:
+// the first page of a room (cache on or off) and an older page by cursor
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryQueryBenchmark {
+
+    private static final int GROUPS = 20;
+
+    @Param({"100000"})
+    public int messages;
+
+    @Param({"false", "true"})
+    public boolean cacheEnabled;
+
+    private MessageHistoryService history;
+    private String olderCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MessageRepository repository = InMemoryMessageRepository.retaining();
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        for (int i = 0; i < messages; i++) {
+            repository.insert(Fixtures.stored("group-" + (i % GROUPS), "user-" + (i % 500), start.plusSeconds(i)));
+        }
+        RecentMessageCache cache = Fixtures.inject(new RecentMessageCache(), Map.of(
+                "enabled", cacheEnabled,
+                "messagesPerGroup", 100,
+                "maxTotalMessages", 100_000,
+                "idleTtlMillis", 600_000L));
+        history = Fixtures.inject(new MessageHistoryService(), Map.of(
+                "messageRepository", repository,
+                "recentMessageCache", cache,
+                "chatMetrics", Fixtures.chatMetrics(),
+                "defaultPageSize", 50,
+                "maxPageSize", 200));
+        // Cursor a few pages deep, as when scrolling back
+        MessagePage page = history.groupPage("group-0", null, 50);
+        for (int i = 0; i < 3; i++) {
+            page = history.groupPage("group-0", page.getNextCursor(), 50);
+        }
+        olderCursor = page.getNextCursor();
+    }
+
+    @Benchmark
+    public MessagePage firstPage() {
+        return history.groupPage("group-0", null, 50);
+    }
+
+    @Benchmark
+    public MessagePage olderPage() {
+        return history.groupPage("group-0", olderCursor, 50);
+    }
+}
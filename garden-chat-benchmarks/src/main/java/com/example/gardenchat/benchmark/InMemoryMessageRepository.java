@@ -0,0 +1,134 @@
+// src/main/java/com/example/gardenchat/benchmark/InMemoryMessageRepository.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.repository.MessageRepository;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// MongoDB stand-in for benchmarks: messages kept in skip lists ordered like the (group|receiver, timestamp, _id)
+// indexes, so history queries are range scans as they would be in Mongo, minus the network and BSON cost.
+// Only the MessageRepository methods on the message path are implemented.
+final class InMemoryMessageRepository {
+
+    // Same order as the compound indexes: timestamp then id, both descending
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getTimestamp, Comparator.reverseOrder())
+            .thenComparing(Message::getId, Comparator.reverseOrder());
+
+    private final boolean retain;
+    private final Map<String, NavigableSet<Message>> byGroup = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Message>> byReceiver = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+
+    private InMemoryMessageRepository(boolean retain) {
+        this.retain = retain;
+    }
+
+    // A repository that keeps every message, for query benchmarks
+    static MessageRepository retaining() {
+        return proxy(new InMemoryMessageRepository(true));
+    }
+
+    // A repository that only counts writes, for benchmarks that would otherwise grow the heap without bound
+    static MessageRepository discarding() {
+        return proxy(new InMemoryMessageRepository(false));
+    }
+
+    private static MessageRepository proxy(InMemoryMessageRepository store) {
+        return (MessageRepository) Proxy.newProxyInstance(MessageRepository.class.getClassLoader(),
+                new Class<?>[]{MessageRepository.class}, (self, method, args) -> switch (method.getName()) {
+                    case "save", "insert" -> store.write(args[0]);
+                    case "findByGroup" -> store.page(store.byGroup, (String) args[0], null, (Pageable) args[1]);
+                    case "findByGroupBefore" -> store.page(store.byGroup, (String) args[0],
+                            probe((LocalDateTime) args[1], (ObjectId) args[2]), (Pageable) args[3]);
+                    case "findByReceiver" -> args.length == 2
+                            ? store.page(store.byReceiver, (String) args[0], null, (Pageable) args[1])
+                            : store.page(store.byReceiver, (String) args[0], null, Pageable.unpaged());
+                    case "findByReceiverBefore" -> store.page(store.byReceiver, (String) args[0],
+                            probe((LocalDateTime) args[1], (ObjectId) args[2]), (Pageable) args[3]);
+                    case "findFirstByGroupOrderBySequenceDesc" -> store.lastSequenced((String) args[0]);
+                    case "findByGroupAndSequenceGreaterThan" -> store.sequencedAfter((String) args[0], (Long) args[1],
+                            (Pageable) args[2]);
+                    case "count" -> store.writes.get();
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "equals" -> self == args[0];
+                    case "toString" -> "InMemoryMessageRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private Object write(Object entity) {
+        if (entity instanceof Iterable<?> messages) {
+            messages.forEach(m -> add((Message) m));
+            return entity;
+        }
+        add((Message) entity);
+        return entity;
+    }
+
+    private void add(Message message) {
+        writes.incrementAndGet();
+        if (!retain) {
+            return;
+        }
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        if (message.getGroup() != null) {
+            byGroup.computeIfAbsent(message.getGroup(), k -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(message);
+        }
+        if (message.getReceiver() != null) {
+            byReceiver.computeIfAbsent(message.getReceiver(), k -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(message);
+        }
+    }
+
+    private List<Message> page(Map<String, NavigableSet<Message>> index, String key, Message before, Pageable pageable) {
+        NavigableSet<Message> messages = index.get(key);
+        List<Message> page = new ArrayList<>();
+        if (messages == null) {
+            return page;
+        }
+        Iterator<Message> it = (before == null ? messages : messages.tailSet(before, false)).iterator();
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    // Sequence lookups scan the group; they only run once per group or on a replay
+    private Message lastSequenced(String group) {
+        return byGroup.getOrDefault(group, new ConcurrentSkipListSet<>(NEWEST_FIRST)).stream()
+                .filter(m -> m.getSequence() != null)
+                .max(Comparator.comparing(Message::getSequence))
+                .orElse(null);
+    }
+
+    private List<Message> sequencedAfter(String group, long sequence, Pageable pageable) {
+        return byGroup.getOrDefault(group, new ConcurrentSkipListSet<>(NEWEST_FIRST)).stream()
+                .filter(m -> m.getSequence() != null && m.getSequence() > sequence)
+                .sorted(Comparator.comparing(Message::getSequence))
+                .limit(pageable.getPageSize())
+                .toList();
+    }
+
+    private static Message probe(LocalDateTime timestamp, ObjectId id) {
+        Message probe = new Message();
+        probe.setTimestamp(timestamp);
+        probe.setId(id.toHexString());
+        return probe;
+    }
+}
@@ -0,0 +1,51 @@
+// src/main/java/com/example/gardenchat/benchmark/InMemoryUserRepository.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.model.User;
+import com.example.gardenchat.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// MongoDB stand-in for the users collection: a hash map keyed like the unique username index.
+// Lookups cost a map probe rather than a network round trip, so results understate what the cache saves.
+final class InMemoryUserRepository {
+
+    private final Map<String, User> byUsername = new ConcurrentHashMap<>();
+
+    private InMemoryUserRepository() {
+    }
+
+    static UserRepository create() {
+        InMemoryUserRepository store = new InMemoryUserRepository();
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (self, method, args) -> switch (method.getName()) {
+                    case "insert" -> store.insert((User) args[0]);
+                    case "save" -> store.save((User) args[0]);
+                    case "findByUsername" -> store.byUsername.get((String) args[0]);
+                    case "count" -> (long) store.byUsername.size();
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "equals" -> self == args[0];
+                    case "toString" -> "InMemoryUserRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private User insert(User user) {
+        if (user.getId() == null) {
+            user.setId(new ObjectId().toHexString());
+        }
+        if (byUsername.putIfAbsent(user.getUsername(), user) != null) {
+            throw new DuplicateKeyException("E11000 duplicate key: " + user.getUsername());
+        }
+        return user;
+    }
+
+    private User save(User user) {
+        byUsername.put(user.getUsername(), user);
+        return user;
+    }
+}
@@ -0,0 +1,107 @@
+// src/main/java/com/example/gardenchat/benchmark/LoginBenchmark.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.config.SecurityConfig;
+import com.example.gardenchat.model.User;
+import com.example.gardenchat.repository.UserRepository;
+import com.example.gardenchat.service.CredentialService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Logins per second for a population of returning users, as after a deploy when every client logs in again:
+// the old plain-text comparison, BCrypt on every login, and BCrypt behind the verified-credential cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoginBenchmark {
+
+    // Kept small because setup hashes every password twice at full cost
+    @Param({"200"})
+    public int users;
+
+    @Param({"10"})
+    public int bcryptStrength;
+
+    private UserRepository plainRepository;
+    private CredentialService uncached;
+    private CredentialService cached;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plainRepository = InMemoryUserRepository.create();
+        UserRepository hashedRepository = InMemoryUserRepository.create();
+        SecurityConfig securityConfig = new SecurityConfig();
+        uncached = credentialService(hashedRepository, securityConfig, 0);
+        cached = credentialService(hashedRepository, securityConfig, users);
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setUsername(username(i));
+            user.setPassword(password(i));
+            plainRepository.insert(user);
+            uncached.register(username(i), password(i));
+        }
+        // Every user has logged in once, so the cached path measures the steady state
+        for (int i = 0; i < users; i++) {
+            cached.verify(username(i), password(i));
+        }
+    }
+
+    // The previous UserController path: lookup, then String.equals against the stored password
+    @Benchmark
+    public boolean plainText() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        User user = plainRepository.findByUsername(username(i));
+        return user != null && user.getPassword().equals(password(i));
+    }
+
+    @Benchmark
+    public boolean bcrypt() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        return uncached.verify(username(i), password(i));
+    }
+
+    @Benchmark
+    public boolean bcryptCached() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        return cached.verify(username(i), password(i));
+    }
+
+    private CredentialService credentialService(UserRepository repository, SecurityConfig securityConfig, int maxEntries) {
+        CredentialService service = Fixtures.inject(new CredentialService(), Map.of(
+                "userRepository", repository,
+                "passwordEncoder", securityConfig.passwordEncoder(bcryptStrength),
+                "chatMetrics", Fixtures.chatMetrics(),
+                "maxEntries", maxEntries,
+                "ttlMillis", 600_000L));
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    private static String username(int i) {
+        return "gardener-" + i;
+    }
+
+    private static String password(int i) {
+        return "tulips-and-roses-" + i;
+    }
+}
@@ -0,0 +1,55 @@
+// src/main/java/com/example/gardenchat/benchmark/MessageSerializationBenchmark.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Jackson cost of one Message on the STOMP path: encoding the broadcast and decoding the inbound frame
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Message message;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        writer = objectMapper.writerFor(Message.class);
+        reader = objectMapper.readerFor(Message.class);
+        message = Fixtures.stored("general", "rose", LocalDateTime.now());
+        json = writer.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public Message deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,119 @@
+// src/main/java/com/example/gardenchat/benchmark/SearchBenchmark.java
+package com.example.gardenchat.benchmark;
+
+import com.example.gardenchat.model.Message;
+import com.example.gardenchat.model.SearchPage;
+import com.example.gardenchat.search.MessageSearchService;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Search latency over a seeded corpus: messages of 6-16 words drawn from a Zipf-distributed vocabulary, so a few
+// words are in most messages and most words are rare, spread over rooms and a month of timestamps
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+    private static final int GROUPS = 100;
+
+    @Param({"1000000"})
+    public int messages;
+
+    private MessageSearchService search;
+    private String[] words;
+    private LocalDateTime lastWeek;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        search = Fixtures.inject(new MessageSearchService(), Map.of(
+                "chatMetrics", Fixtures.chatMetrics(),
+                "enabled", true,
+                "brokerMode", "simple",
+                "maxDocuments", messages,
+                "queueCapacity", messages,
+                "defaultPageSize", 20,
+                "maxPageSize", 100,
+                "maxResults", 1000,
+                "loaded", true));
+        ReflectionTestUtils.invokeMethod(search, "init");
+
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = "w" + Integer.toString(i, 36);
+        }
+        double[] cumulative = new double[VOCABULARY]; // Zipf with s = 1
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < messages; i++) {
+            content.setLength(0);
+            int length = 6 + random.nextInt(11);
+            for (int w = 0; w < length; w++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                content.append(words[rank < 0 ? -rank - 1 : rank]).append(' ');
+            }
+            Message message = new Message();
+            message.setId(new ObjectId().toHexString());
+            message.setGroup("group-" + random.nextInt(GROUPS));
+            message.setSender("user-" + random.nextInt(500));
+            message.setContent(content.toString());
+            message.setTimestamp(start.plusSeconds(i * (30L * 24 * 3600) / messages));
+            search.index(message);
+        }
+        while (search.pending() > 0) { // Indexed on the service's own thread
+            Thread.onSpinWait();
+        }
+        lastWeek = LocalDateTime.now().minusDays(7);
+    }
+
+    // The most frequent word, in about two thirds of all messages
+    @Benchmark
+    public SearchPage commonWord() {
+        return search.search(words[0], null, null, null, null, 20);
+    }
+
+    // Two mid-frequency words that must both match
+    @Benchmark
+    public SearchPage twoWords() {
+        return search.search(words[20] + " " + words[60], null, null, null, null, 20);
+    }
+
+    // A rare word
+    @Benchmark
+    public SearchPage rareWord() {
+        return search.search(words[5000], null, null, null, null, 20);
+    }
+
+    // A common word within one room and the last week
+    @Benchmark
+    public SearchPage commonWordInGroupLastWeek() {
+        return search.search(words[0], "group-7", lastWeek, null, null, 20);
+    }
+}
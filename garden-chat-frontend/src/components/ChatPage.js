@@ -6,6 +6,15 @@ import WebSocketService from '../services/WebSocketService'; // WebSocket servic
 import Sidebar from './Sidebar'; // Sidebar for chat groups and online users
 import Profile from './Profile'; // Profile component for user info
 
+// Builds the typing indicator text from the list of users typing, leaving out the current user
+const formatTypingMessage = (users, currentUser) => {
+    const others = (users || []).filter((user) => user !== currentUser);
+    if (others.length === 0) return '';
+    if (others.length === 1) return `${others[0]} is typing...`;
+    if (others.length <= 3) return `${others.join(', ')} are typing...`;
+    return `${others.length} people are typing...`;
+};
+
 function ChatPage() {
     // State hooks for managing chat data
     const [messages, setMessages] = useState([]); // Stores all chat messages
@@ -130,17 +139,15 @@ function ChatPage() {
             return;
         }
 
-        const handleTypingNotification = (user) => {
-            console.log(`[ChatPage Debug] Typing notification received for group: ${selectedGroup}, User: ${user}`);
-            if (user !== username) {
-                setTypingMessage(`${user} is typing...`);
-                setTimeout(() => setTypingMessage(''), 3000);
-            }
+        const handleTypingNotification = (users) => {
+            console.log(`[ChatPage Debug] Typing notification received for group: ${selectedGroup}, Users: ${users}`);
+            setTypingMessage(formatTypingMessage(users, username));
         };
 
+        let typingSubscription = null;
         const trySubscribeToTypingNotifications = async () => {
             if (WebSocketService.isConnected) {
-                WebSocketService.subscribeToTypingNotifications(selectedGroup, handleTypingNotification);
+                typingSubscription = WebSocketService.subscribeToTypingNotifications(selectedGroup, handleTypingNotification);
             } else {
                 console.warn("[ChatPage Warning] WebSocket client not yet connected. Retrying subscription...");
                 setTimeout(trySubscribeToTypingNotifications, 1000); // Retry in 1 second
@@ -151,6 +158,9 @@ function ChatPage() {
 
         return () => {
             console.log(`[ChatPage Debug] Unsubscribing from typing notifications for group: ${selectedGroup}`);
+            if (typingSubscription) {
+                typingSubscription.unsubscribe(); // Also stops its expiry timer
+            }
             WebSocketService.unsubscribeFromGroupMessages(selectedGroup);
         };
     }, [selectedGroup, username, groups]);
@@ -158,12 +168,9 @@ function ChatPage() {
     // Typing notifications
     useEffect(() => {
         console.log(`[ChatPage Debug] Subscribing to typing notifications for group: ${selectedGroup}`);
-        const typingSubscription = WebSocketService.subscribeToTypingNotifications(selectedGroup, (user) => {
-            console.log(`[ChatPage Debug] Typing notification received for group ${selectedGroup}: ${user}`);
-            if (user !== username) {
-                setTypingMessage(`${user} is typing...`);
-                setTimeout(() => setTypingMessage(''), 3000);
-            }
+        const typingSubscription = WebSocketService.subscribeToTypingNotifications(selectedGroup, (users) => {
+            console.log(`[ChatPage Debug] Typing notification received for group ${selectedGroup}: ${users}`);
+            setTypingMessage(formatTypingMessage(users, username));
         });
 
         return () => {
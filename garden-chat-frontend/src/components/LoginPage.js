@@ -31,6 +31,7 @@ function LoginPage() {
                 // Save user session
                 login(username, response.data.token);
                 localStorage.setItem('username', username);
+                localStorage.setItem('token', response.data.token); // Sent on API requests and the STOMP CONNECT
 
                 // Initialize WebSocket
                 try {
@@ -1,6 +1,7 @@
 // src/services/WebSocketService.js
 import { Stomp } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
+import axios from '../utils/axiosConfig'; // Configured Axios instance for API requests
 
 class WebSocketService {
     constructor() {
@@ -9,6 +10,13 @@ class WebSocketService {
         this.typingCallback = null;
         this.reconnectDelay = 5000; // Delay in ms for automatic reconnection
         this.groupSubscriptions = {};
+        this.groupHandlers = {}; // Message callback per subscribed group, kept so groups can be resumed after a reconnect
+        this.groupSequences = {}; // Per group: last sequence with nothing missing before it, and sequences seen after it
+        this.onlineUsers = new Set();
+        this.directMessageCallback = null;
+        this.receiptCallback = null;
+        this.rateLimitCallback = null;
+        this.unreadCounts = {}; // Unread direct messages per sender
     }
 
     // Method to initiate WebSocket connection with retry
@@ -51,6 +59,24 @@ class WebSocketService {
         this.stompClient.debug = (str) => console.log(`[STOMP Debug] ${str}`);
         this.stompClient.onStompError = (frame) => {
             console.error("[STOMP Error] Broker error:", frame.headers['message']);
+            // The login token expired or the server no longer accepts it: log in again rather than reconnecting
+            // anonymously, which would never receive direct messages
+            if ((frame.headers['message'] || '').startsWith('401')) {
+                this.stompClient.reconnectDelay = 0;
+                localStorage.removeItem('token');
+                localStorage.removeItem('username');
+                window.location.assign('/login');
+                return;
+            }
+            // Rate limited: the server closes the connection, so don't reconnect before the limit allows sending again
+            const retryAfter = Number(frame.headers['retry-after']);
+            if (retryAfter > 0) {
+                this.stompClient.reconnectDelay = Math.max(this.reconnectDelay, retryAfter);
+            }
+        };
+        // Subscriptions die with the socket; the client reconnects on its own and _resumeGroups restores them
+        this.stompClient.onWebSocketClose = () => {
+            this.groupSubscriptions = {};
         };
 
         // Attempt connection with a fallback timeout
@@ -60,13 +86,20 @@ class WebSocketService {
                 resolve(); // Proceed even if STOMP fails
             }, 5000); // 5-second fallback
 
-            this.stompClient.connect({}, (frame) => {
+            // The login token makes this connection the user's, so direct messages reach it on /user/queue/...
+            const token = localStorage.getItem('token');
+            const headers = token ? { Authorization: `Bearer ${token}` } : {};
+            this.stompClient.connect(headers, (frame) => {
                 clearTimeout(timeout); // Clear fallback timeout
                 console.log("[STOMP Connected] Frame received:", frame);
+                const reconnected = this.isConnected || Object.keys(this.groupHandlers).length > 0;
                 this.isConnected = true;
 
                 // Set up subscriptions if necessary
                 this._setupSubscriptions(onMessageReceived, onUsersUpdated);
+                if (reconnected) {
+                    this._resumeGroups();
+                }
                 resolve();
             }, (error) => {
                 clearTimeout(timeout); // Clear timeout on error
@@ -86,13 +119,49 @@ class WebSocketService {
                 onMessageReceived(JSON.parse(message.body));
             });
 
-            // Subscribe to online users
-            this.stompClient.subscribe('/topic/online-users', (users) => {
-                console.log("[STOMP Debug] Online users updated:", users);
+            // Online users: one snapshot from /app/presence, then joined/left deltas on /topic/presence
+            this.onlineUsers = new Set();
+            this.stompClient.subscribe('/app/presence', (snapshot) => {
+                this.onlineUsers = new Set(JSON.parse(snapshot.body));
+                if (onUsersUpdated) {
+                    onUsersUpdated([...this.onlineUsers]);
+                }
+            });
+            this.stompClient.subscribe('/topic/presence', (update) => {
+                console.log("[STOMP Debug] Presence update:", update);
+                const { joined, left } = JSON.parse(update.body);
+                joined.forEach((user) => this.onlineUsers.add(user));
+                left.forEach((user) => this.onlineUsers.delete(user));
                 if (onUsersUpdated) {
-                    onUsersUpdated(JSON.parse(users.body));
+                    onUsersUpdated([...this.onlineUsers]);
+                }
+            });
+
+            // Direct messages are pushed as they are sent; the unread counts come once from /app/dm/unread
+            this.stompClient.subscribe('/user/queue/messages', (message) => {
+                const directMessage = JSON.parse(message.body);
+                this.unreadCounts[directMessage.sender] = (this.unreadCounts[directMessage.sender] || 0) + 1;
+                if (this.directMessageCallback) {
+                    this.directMessageCallback(directMessage);
+                }
+            });
+            this.stompClient.subscribe('/user/queue/receipts', (receipt) => {
+                // { sender, receiver, messageId, status: "delivered" | "read" } for messages we sent
+                if (this.receiptCallback) {
+                    this.receiptCallback(JSON.parse(receipt.body));
+                }
+            });
+            // A room over its rate limit drops our message but keeps the connection: { scope, retryAfterMillis }
+            this.stompClient.subscribe('/user/queue/rate-limit', (notice) => {
+                const { scope, retryAfterMillis } = JSON.parse(notice.body);
+                console.warn(`[STOMP Warning] Message dropped by the ${scope} rate limit, retry after ${retryAfterMillis} ms`);
+                if (this.rateLimitCallback) {
+                    this.rateLimitCallback(retryAfterMillis);
                 }
             });
+            this.stompClient.subscribe('/app/dm/unread', (snapshot) => {
+                this.unreadCounts = JSON.parse(snapshot.body);
+            });
 
             // Subscribe to typing notifications
             this.stompClient.subscribe('/topic/typing', (typingStatus) => {
@@ -126,9 +195,10 @@ class WebSocketService {
         const subscription = this.stompClient.subscribe(destination, (message) => {
             const parsedMessage = JSON.parse(message.body);
             console.log(`[STOMP Info] Received message for group ${group}:`, parsedMessage);
-            onMessageReceived(parsedMessage); // Call the passed-in callback with the parsed message
+            this._deliverGroupMessage(group, parsedMessage); // Skips messages already delivered by a replay
         });
 
+        this.groupHandlers[group] = onMessageReceived;
         this.groupSubscriptions[group] = subscription;
         return subscription;
     }
@@ -155,6 +225,78 @@ class WebSocketService {
         console.log(`[STOMP Info] Unsubscribing from group: ${group}`);
         this.groupSubscriptions[group].unsubscribe(); // Perform the unsubscribe
         delete this.groupSubscriptions[group]; // Remove the subscription from the map
+        delete this.groupHandlers[group]; // Not resumed on reconnect any more
+    }
+
+    // Passes a group message to its callback once, and tracks the sequence numbers seen for that group
+    _deliverGroupMessage(group, message) {
+        const handler = this.groupHandlers[group];
+        const sequence = message.sequence;
+        if (sequence == null) {
+            if (handler) handler(message);
+            return;
+        }
+        const state = this.groupSequences[group]
+            || (this.groupSequences[group] = { last: null, seen: new Set(), delivered: new Set() });
+        // With several nodes sequences interleave by up to a block, so a number below `last` can still be new:
+        // duplicates (e.g. a replay that overlapped the live subscription) are recognised by the sequences delivered
+        if (state.delivered.has(sequence)) {
+            return;
+        }
+        state.delivered.add(sequence);
+        if (state.delivered.size > 1000) {
+            state.delivered.delete(state.delivered.values().next().value); // Forget the oldest
+        }
+        if (state.last == null) {
+            state.last = sequence - 1; // First message since joining: nothing before it is owed to us
+        }
+        if (sequence > state.last) {
+            state.seen.add(sequence);
+            // Advance past every sequence now received without a hole; later ones wait in `seen`
+            while (state.seen.has(state.last + 1)) {
+                state.last += 1;
+                state.seen.delete(state.last);
+            }
+            if (state.seen.size > 100) {
+                // A hole that stays open while live traffic continues is a real gap (or numbers another node never
+                // used), not a late frame
+                state.last = Math.max(...state.seen);
+                state.seen.clear();
+            }
+        }
+        if (handler) handler(message);
+    }
+
+    // After a reconnect: subscribe to each group again, then fetch only the messages sent while we were away
+    _resumeGroups() {
+        Object.entries(this.groupHandlers).forEach(([group, handler]) => {
+            delete this.groupSubscriptions[group];
+            this.subscribeToGroupMessages(group, handler);
+            const state = this.groupSequences[group];
+            if (state && state.last != null) {
+                this._replayGroup(group, state.last);
+            }
+        });
+    }
+
+    async _replayGroup(group, since) {
+        try {
+            let cursor = since;
+            while (cursor != null) {
+                const response = await axios.get(`/messages/group/${encodeURIComponent(group)}/since/${cursor}`);
+                response.data.messages.forEach((message) => this._deliverGroupMessage(group, message));
+                cursor = response.data.nextCursor;
+            }
+            // Whatever is still missing no longer exists (e.g. never persisted); stop waiting for it
+            const state = this.groupSequences[group];
+            if (state && state.seen.size > 0) {
+                state.last = Math.max(state.last, ...state.seen);
+                state.seen.clear();
+            }
+            console.log(`[STOMP Info] Resumed group ${group} from sequence ${since}`);
+        } catch (error) {
+            console.error(`[STOMP Error] Could not replay missed messages for group ${group}:`, error);
+        }
     }
 
     // Set the callback for typing notifications
@@ -186,11 +328,38 @@ class WebSocketService {
         const destination = `/topic/typing/${group}`;
         console.log(`[STOMP Info] Subscribing to typing notifications for group: ${destination}`);
 
-        return this.stompClient.subscribe(destination, (message) => {
-            const parsedTypingUser = JSON.parse(message.body);
-            console.log(`[STOMP Info] Received typing notification for group ${group}:`, parsedTypingUser);
-            callback(parsedTypingUser.username);
+        // { group, started: [...], stopped: [...], expiresInMillis } from each node for its own clients: merge them,
+        // and drop typists that are not announced again in time (their node went away or a stop frame was dropped)
+        const typists = new Map(); // username -> time their indicator expires
+        const report = () => callback([...typists.keys()].sort());
+        const expiry = setInterval(() => {
+            const now = Date.now();
+            let changed = false;
+            typists.forEach((expires, user) => {
+                if (expires <= now) {
+                    typists.delete(user);
+                    changed = true;
+                }
+            });
+            if (changed) {
+                report();
+            }
+        }, 1000);
+
+        const subscription = this.stompClient.subscribe(destination, (message) => {
+            const typingUpdate = JSON.parse(message.body);
+            console.log(`[STOMP Info] Received typing notification for group ${group}:`, typingUpdate);
+            const expires = Date.now() + typingUpdate.expiresInMillis;
+            typingUpdate.started.forEach((user) => typists.set(user, expires));
+            typingUpdate.stopped.forEach((user) => typists.delete(user));
+            report();
         });
+        return {
+            unsubscribe: () => {
+                clearInterval(expiry);
+                subscription.unsubscribe();
+            },
+        };
     }
 
 
@@ -207,6 +376,30 @@ class WebSocketService {
         }
     }
 
+    // Set the callbacks for incoming direct messages and for receipts of the ones we sent
+    onDirectMessage(callback, onReceipt) {
+        this.directMessageCallback = callback;
+        this.receiptCallback = onReceipt || null;
+    }
+
+    // Set the callback for messages the server dropped because their room was busy
+    onRateLimited(callback) {
+        this.rateLimitCallback = callback;
+    }
+
+    // Tell the sender we have read their messages up to messageId, and clear our unread count for them
+    markDirectMessagesRead(sender, messageId) {
+        delete this.unreadCounts[sender];
+        if (this.stompClient && this.stompClient.connected) {
+            this.stompClient.publish({
+                destination: '/app/dm/read',
+                body: JSON.stringify({ sender, messageId }),
+            });
+        } else {
+            console.error("[STOMP Warning] Cannot send read receipt. STOMP client not connected.");
+        }
+    }
+
     // Notify server of user's presence (to mark as online)
     sendUserPresence(username) {
         if (this.stompClient && this.stompClient.connected) {